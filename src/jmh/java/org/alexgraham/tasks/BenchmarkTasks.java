@@ -0,0 +1,60 @@
+package org.alexgraham.tasks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the Task lists used by the benchmarks.
+ */
+final class BenchmarkTasks {
+
+    private BenchmarkTasks() {}
+
+    /**
+     * @param count     The number of Tasks.
+     * @return          Open Tasks with sequential ids, evenly spaced rank keys, and a title and description.
+     */
+    static List<Task> ranked(int count) {
+        List<String> keys = RankKeys.evenlySpaced(count);
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Task task = new Task("task " + i, null)
+                    .setDescription("The description of task " + i + ", which is about as long as a typical one.")
+                    .setRank(keys.get(i));
+            task.id = (long) i + 1;
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Re-orders the Tasks, as if the user had dragged some of them to new positions.
+     *
+     * @param tasks         The Tasks, in rank order.
+     * @param movedRatio    The fraction of the Tasks to move (the rest keep their relative order).
+     * @param seed          The seed of the random moves, so runs are repeatable.
+     * @return              The Tasks, in their new order.
+     */
+    static List<Task> shuffled(List<Task> tasks, double movedRatio, long seed) {
+        Random random = new Random(seed);
+        List<Task> order = new ArrayList<>(tasks);
+        int moves = (int) Math.round(tasks.size() * movedRatio);
+        List<Task> moved = new ArrayList<>(moves);
+        for (int i = 0; i < moves; i++) {
+            moved.add(order.remove(random.nextInt(order.size())));
+        }
+        for (Task task : moved) {
+            order.add(random.nextInt(order.size() + 1), task);
+        }
+        return Collections.unmodifiableList(order);
+    }
+
+    /**
+     * @return  A copy of each Task, so that re-ranking them doesn't change the originals.
+     */
+    static List<Task> copies(List<Task> tasks) {
+        return tasks.stream().map(Task::copy).toList();
+    }
+}
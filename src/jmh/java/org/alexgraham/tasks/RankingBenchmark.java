@@ -0,0 +1,86 @@
+package org.alexgraham.tasks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the in-memory merge work on an Owner's ranked list: re-ranking a re-ordered list (the longest
+ * increasing run, and the new keys for the moved Tasks), placing saved Tasks into a cached list, and paging
+ * through a cached list.
+ * <p>
+ * The movedRatio is the fraction of the Tasks the user has moved out of their ranked order (so 0.0 is a list
+ * which is already ranked, and 0.5 is a list where half the Tasks need new keys).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RankingBenchmark {
+
+    private static final UUID OWNER_ID = UUID.randomUUID();
+
+    @Param({"10", "1000", "50000"})
+    int size;
+
+    @Param({"0.0", "0.1", "0.5"})
+    double movedRatio;
+
+    private TaskService service;
+    private List<Task> tasks;
+    private List<Task> reordered;
+    private List<Task> moved;
+    private TaskListCache listCache;
+    private TaskListCache.Key key;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new TaskService();
+        tasks = BenchmarkTasks.ranked(size);
+        reordered = BenchmarkTasks.shuffled(tasks, movedRatio, 42);
+        moved = service.rerank(OWNER_ID, BenchmarkTasks.copies(reordered), null);
+
+        listCache = new TaskListCache();
+        listCache.maxTasks = 1_000_000;
+        listCache.maxListSize = Math.max(size, 1);
+        listCache.ttl = Duration.ofHours(1);
+        listCache.registry = new SimpleMeterRegistry();
+        listCache.init();
+        key = new TaskListCache.Key(OWNER_ID, Set.of(Task.State.Open));
+    }
+
+    // Placing the saved Tasks changes the cached list, so it is reset before each call (this adds some
+    // overhead to the measurement of the small lists)
+    @Setup(Level.Invocation)
+    public void resetCachedList() {
+        listCache.put(key, tasks, listCache.epoch(OWNER_ID));
+    }
+
+    @Benchmark
+    public List<Task> rerank() {
+        return service.rerank(OWNER_ID, BenchmarkTasks.copies(reordered), null);
+    }
+
+    @Benchmark
+    public TaskListCache.Entry placeSavedTasks() {
+        listCache.onSaved(OWNER_ID, moved);
+        return listCache.get(key);
+    }
+
+    @Benchmark
+    public TaskPage firstPage() {
+        return TaskService.pageOf(tasks, List.of(Task.State.Open), 0, TaskService.DEFAULT_PAGE_SIZE);
+    }
+}
@@ -0,0 +1,150 @@
+package org.alexgraham.tasks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.qute.Engine;
+import io.quarkus.qute.NamespaceResolver;
+import io.quarkus.qute.ReflectionValueResolver;
+import io.quarkus.qute.Template;
+import io.quarkus.qute.TemplateLocator.TemplateLocation;
+import io.quarkus.qute.UserTagSectionHelper;
+import io.quarkus.qute.ValueResolver;
+import io.quarkus.qute.Variant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the output side of the list path: rendering the list and task templates (with the same
+ * templates the app uses, from src/main/resources/templates), and serializing the Tasks as JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RenderBenchmark {
+
+    /**
+     * Stands in for the assets bean (see org.alexgraham.assets.Assets).
+     */
+    private static final class AssetsStub {}
+
+    private static final AssetsStub ASSETS = new AssetsStub();
+
+    @Param({"10", "1000", "50000"})
+    int size;
+
+    private Template listTemplate;
+    private Template taskTemplate;
+    private TaskFragments fragments;
+    private ObjectMapper mapper;
+    private TaskPage page;
+    private Task task;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fragments = new TaskFragments();
+        fragments.maxSize = size;
+        fragments.registry = new SimpleMeterRegistry();
+        fragments.init();
+
+        Engine engine = Engine.builder()
+                .addDefaults()
+                .addValueResolver(new ReflectionValueResolver())
+                .addLocator(RenderBenchmark::locate)
+                // the parts of the Quarkus integration the templates use: the icon tag, the assets bean (whose
+                // paths are stubbed, as they don't change the cost of rendering) and the cache of rendered tasks
+                .addSectionHelper(new UserTagSectionHelper.Factory("icon", "tags/icon.html"))
+                .addNamespaceResolver(NamespaceResolver.builder("inject")
+                        .resolve(context -> switch (context.getName()) {
+                            case "assets" -> ASSETS;
+                            case "taskFragments" -> fragments;
+                            default -> null;
+                        })
+                        .build())
+                .addValueResolver(ValueResolver.builder()
+                        .applyToBaseClass(TaskFragments.class)
+                        .applyToName("render")
+                        .resolveAsync(context -> context.evaluate(context.getParams().get(0))
+                                .thenApply(task -> fragments.render((Task) task)))
+                        .build())
+                .addValueResolver(ValueResolver.builder()
+                        .applyToBaseClass(AssetsStub.class)
+                        .applyToName("path")
+                        .resolveSync(context -> "/assets/icons.svg")
+                        .build())
+                .build();
+        listTemplate = engine.getTemplate("TaskResource/list.html");
+        taskTemplate = engine.getTemplate("TaskResource/task.html");
+        fragments.renderer = task -> taskTemplate.data("task", task).render();
+        mapper = new ObjectMapper();
+
+        List<Task> tasks = BenchmarkTasks.ranked(size);
+        // render the whole list as one page, to see how rendering scales with the number of Tasks
+        page = new TaskPage(tasks, List.of(Task.State.Open), null);
+        task = tasks.get(0);
+    }
+
+    /**
+     * Renders a list whose Tasks have not changed since it was last rendered, so they are all spliced in
+     * from the cache of rendered tasks.
+     */
+    @Benchmark
+    public String renderList() {
+        return listTemplate.data("page", page).render();
+    }
+
+    /**
+     * Renders a list whose Tasks have all changed, so each one is rendered.
+     */
+    @Benchmark
+    public String renderListUncached() {
+        fragments.invalidateAll();
+        return listTemplate.data("page", page).render();
+    }
+
+    @Benchmark
+    public String renderTask() {
+        return taskTemplate.data("task", task).render();
+    }
+
+    @Benchmark
+    public byte[] serializeJson() throws IOException {
+        return mapper.writeValueAsBytes(page.tasks());
+    }
+
+    /**
+     * Finds the templates on the classpath, where Quarkus would find them.
+     */
+    private static Optional<TemplateLocation> locate(String id) {
+        InputStream in = RenderBenchmark.class.getClassLoader().getResourceAsStream("templates/" + id);
+        if (in == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new TemplateLocation() {
+            @Override
+            public Reader read() {
+                return new InputStreamReader(in, StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public Optional<Variant> getVariant() {
+                return Optional.empty();
+            }
+        });
+    }
+}
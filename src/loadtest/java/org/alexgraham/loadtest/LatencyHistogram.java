@@ -0,0 +1,76 @@
+package org.alexgraham.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies (in microseconds), for recording from many threads at once.
+ * <p>
+ * Latencies under 128µs are counted exactly; above that, each power of two is split into 64 buckets,
+ * so any percentile is accurate to within ~1.6% (in the style of HdrHistogram).
+ */
+final class LatencyHistogram {
+
+    private static final int EXACT = 128;
+    private static final int SUB_BUCKETS = 64;
+    private static final int BUCKETS = EXACT + 40 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    void record(long micros) {
+        counts.incrementAndGet(bucket(Math.max(micros, 0)));
+        total.increment();
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    long count() {
+        return total.sum();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    /**
+     * @param percentile    The percentile, between 0 and 100 (e.g. 99.9).
+     * @return              The latency (in microseconds) which that percentile of requests were faster than.
+     */
+    long percentile(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    private static int bucket(long micros) {
+        if (micros < EXACT) {
+            return (int) micros;
+        }
+        // the shift which brings the latency into [64, 128)
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - 6;
+        return Math.min(EXACT + (shift - 1) * SUB_BUCKETS + (int) ((micros >> shift) - SUB_BUCKETS), BUCKETS - 1);
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < EXACT) {
+            return bucket;
+        }
+        int shift = (bucket - EXACT) / SUB_BUCKETS + 1;
+        long subBucket = (bucket - EXACT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
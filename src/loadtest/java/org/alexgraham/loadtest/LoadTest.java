@@ -0,0 +1,175 @@
+package org.alexgraham.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+/**
+ * A load generator which drives many simulated users (see {@link SimulatedUser}) against a running instance
+ * of the app, and reports the throughput and the latency percentiles of each kind of request.
+ * <p>
+ * Each simulated user runs on its own virtual thread, so thousands of them can be driven from one machine
+ * with plain blocking HttpClient calls.
+ * <p>
+ * Options (all optional), passed as --name=value:
+ * <ul>
+ *     <li>url: the app to test (default http://localhost:8080)</li>
+ *     <li>users: the number of simulated users (default 1000)</li>
+ *     <li>tasks: the number of Tasks each user starts with (default 20)</li>
+ *     <li>duration: how long to run for, after the warmup (default PT60S)</li>
+ *     <li>warmup: how long to run before the latencies are recorded (default PT10S)</li>
+ *     <li>think-time: the average pause between a user's requests (default PT1S)</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        URI baseUri = URI.create(options.getOrDefault("url", "http://localhost:8080"));
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int tasksPerUser = Integer.parseInt(options.getOrDefault("tasks", "20"));
+        Duration duration = Duration.parse(options.getOrDefault("duration", "PT60S"));
+        Duration warmup = Duration.parse(options.getOrDefault("warmup", "PT10S"));
+        Duration thinkTime = Duration.parse(options.getOrDefault("think-time", "PT1S"));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(executor)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+
+            System.out.printf("Creating %d users with %d tasks each at %s%n", users, tasksPerUser, baseUri);
+            List<UUID> userIds = createUsers(client, executor, baseUri, users, tasksPerUser);
+
+            System.out.printf("Warming up for %s%n", warmup);
+            run(client, executor, baseUri, userIds, thinkTime, warmup);
+
+            System.out.printf("Running %d users for %s%n", users, duration);
+            Map<SimulatedUser.Operation, LatencyHistogram> histograms = run(client, executor, baseUri, userIds,
+                    thinkTime, duration);
+            report(histograms, duration);
+        }
+    }
+
+    private static Map<SimulatedUser.Operation, LatencyHistogram> run(
+            HttpClient client,
+            ExecutorService executor,
+            URI baseUri,
+            List<UUID> userIds,
+            Duration thinkTime,
+            Duration duration
+    ) throws Exception {
+        Map<SimulatedUser.Operation, LatencyHistogram> histograms = new EnumMap<>(SimulatedUser.Operation.class);
+        for (SimulatedUser.Operation operation : SimulatedUser.Operation.values()) {
+            histograms.put(operation, new LatencyHistogram());
+        }
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            running.add(executor.submit(new SimulatedUser(client, baseUri, userIds.get(i), histograms, thinkTime,
+                    deadline, i)));
+        }
+        for (Future<?> user : running) {
+            user.get();
+        }
+        return histograms;
+    }
+
+    private static List<UUID> createUsers(
+            HttpClient client,
+            ExecutorService executor,
+            URI baseUri,
+            int users,
+            int tasksPerUser
+    ) throws Exception {
+        List<Future<UUID>> created = IntStream.range(0, users)
+                .mapToObj(i -> executor.submit(() -> createUser(client, baseUri, "load-test-user-" + i, tasksPerUser)))
+                .toList();
+        List<UUID> userIds = new ArrayList<>(users);
+        for (Future<UUID> userId : created) {
+            userIds.add(userId.get());
+        }
+        return userIds;
+    }
+
+    private static UUID createUser(HttpClient client, URI baseUri, String name, int tasks)
+            throws IOException, InterruptedException {
+        HttpResponse<String> user = send(client, HttpRequest.newBuilder(baseUri.resolve("/users"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(Map.of("name", name))))
+                .build());
+        UUID userId = UUID.fromString(MAPPER.readTree(user.body()).get("id").asText());
+
+        if (tasks > 0) {
+            List<String> titles = IntStream.range(0, tasks).mapToObj(i -> "task-" + i).toList();
+            send(client, HttpRequest.newBuilder(baseUri.resolve("/tasks/batch"))
+                    .header("Content-Type", "application/json")
+                    .header("X-User-Id", userId.toString())
+                    .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(Map.of("titles", titles))))
+                    .build());
+        }
+        return userId;
+    }
+
+    private static HttpResponse<String> send(HttpClient client, HttpRequest request)
+            throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException(String.format("%s %s failed with %d: %s",
+                    request.method(), request.uri(), response.statusCode(), response.body()));
+        }
+        return response;
+    }
+
+    private static void report(Map<SimulatedUser.Operation, LatencyHistogram> histograms, Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        long totalCount = 0;
+        long totalErrors = 0;
+
+        System.out.printf("%n%-10s %10s %10s %8s %10s %10s %10s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 (ms)", "p99 (ms)", "p999 (ms)");
+        for (Map.Entry<SimulatedUser.Operation, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            System.out.printf("%-10s %10d %10.1f %8d %10.2f %10.2f %10.2f%n",
+                    entry.getKey(),
+                    histogram.count(),
+                    histogram.count() / seconds,
+                    histogram.errors(),
+                    histogram.percentile(50) / 1000.0,
+                    histogram.percentile(99) / 1000.0,
+                    histogram.percentile(99.9) / 1000.0);
+            totalCount += histogram.count();
+            totalErrors += histogram.errors();
+        }
+        System.out.printf("%-10s %10d %10.1f %8d%n", "total", totalCount, totalCount / seconds, totalErrors);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected an option like --name=value, but got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+}
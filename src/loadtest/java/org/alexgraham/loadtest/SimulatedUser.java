@@ -0,0 +1,194 @@
+package org.alexgraham.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * One simulated user of the app. It replays a mix of the requests a real user makes (mostly reading
+ * their list; sometimes creating, completing, re-ranking and updating Tasks) until the deadline, with
+ * a think time between requests.
+ * <p>
+ * Like a browser, the HTML requests identify the user with the userId cookie; the JSON requests use the
+ * X-User-Id header.
+ */
+final class SimulatedUser implements Runnable {
+
+    /**
+     * The requests a user makes, and how often they make each (relative to the others).
+     */
+    enum Operation {
+        ListJson(30),
+        ListHtml(25),
+        Create(15),
+        Complete(10),
+        Rerank(10),
+        Update(10);
+
+        final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+
+        static Operation pick(Random random) {
+            int roll = random.nextInt(Operation.totalWeight());
+            for (Operation operation : values()) {
+                roll -= operation.weight;
+                if (roll < 0) {
+                    return operation;
+                }
+            }
+            throw new IllegalStateException("unreachable");
+        }
+
+        private static int totalWeight() {
+            int total = 0;
+            for (Operation operation : values()) {
+                total += operation.weight;
+            }
+            return total;
+        }
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient client;
+    private final URI baseUri;
+    private final UUID userId;
+    private final Map<Operation, LatencyHistogram> histograms;
+    private final Duration thinkTime;
+    private final long deadline;
+    private final Random random;
+
+    // The ids of the user's open Tasks, in rank order (as of the last time the user listed them)
+    private List<Long> openTaskIds = new ArrayList<>();
+
+    SimulatedUser(HttpClient client, URI baseUri, UUID userId, Map<Operation, LatencyHistogram> histograms,
+                  Duration thinkTime, long deadline, long seed) {
+        this.client = client;
+        this.baseUri = baseUri;
+        this.userId = userId;
+        this.histograms = histograms;
+        this.thinkTime = thinkTime;
+        this.deadline = deadline;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public void run() {
+        try {
+            // stagger the start, so the users don't all make their requests in lock-step
+            Thread.sleep(random.nextLong(thinkTime.toMillis() + 1));
+            while (System.nanoTime() < deadline) {
+                execute(Operation.pick(random));
+                Thread.sleep(thinkTime.toMillis() / 2 + random.nextLong(thinkTime.toMillis() + 1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(Operation operation) throws InterruptedException {
+        if (openTaskIds.isEmpty() && operation != Operation.Create) {
+            operation = operation == Operation.ListHtml ? Operation.ListHtml : Operation.ListJson;
+        }
+        HttpRequest request = switch (operation) {
+            case ListJson -> json("/tasks").GET().build();
+            case ListHtml -> html("/tasks").GET().build();
+            case Create -> json("/tasks")
+                    .POST(body(Map.of("title", "task-" + random.nextInt(1_000_000))))
+                    .build();
+            case Complete -> json("/tasks/" + removeRandomTask() + "/complete")
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            case Rerank -> json("/tasks/rerank")
+                    .POST(body(Map.of("rankings", shuffledTaskIds())))
+                    .build();
+            case Update -> json("/tasks/" + randomTask())
+                    .POST(body(Map.of("title", "updated-" + random.nextInt(1_000_000))))
+                    .build();
+        };
+
+        LatencyHistogram histogram = histograms.get(operation);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            long micros = (System.nanoTime() - start) / 1_000;
+            if (response.statusCode() >= 400) {
+                histogram.recordError();
+                return;
+            }
+            histogram.record(micros);
+            if (operation == Operation.ListJson) {
+                openTaskIds = taskIds(response.body());
+            } else if (operation == Operation.Create) {
+                openTaskIds.add(0, MAPPER.readTree(response.body()).get("id").asLong());
+            }
+        } catch (IOException e) {
+            histogram.recordError();
+        }
+    }
+
+    private HttpRequest.Builder json(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .header("X-User-Id", userId.toString());
+    }
+
+    private HttpRequest.Builder html(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "text/html")
+                .header("Accept", "text/html")
+                .header("HX-Request", "true")
+                .header("Cookie", "userId=" + userId);
+    }
+
+    private static HttpRequest.BodyPublisher body(Object value) {
+        try {
+            return HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(value));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long randomTask() {
+        return openTaskIds.get(random.nextInt(openTaskIds.size()));
+    }
+
+    private long removeRandomTask() {
+        return openTaskIds.remove(random.nextInt(openTaskIds.size()));
+    }
+
+    /**
+     * @return  The user's open Tasks, with one of them dragged to a new position (as a user would in the UI).
+     */
+    private List<Long> shuffledTaskIds() {
+        List<Long> rankings = new ArrayList<>(openTaskIds);
+        Long moved = rankings.remove(random.nextInt(rankings.size()));
+        rankings.add(random.nextInt(rankings.size() + 1), moved);
+        openTaskIds = rankings;
+        return Collections.unmodifiableList(rankings);
+    }
+
+    private static List<Long> taskIds(String body) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode task : MAPPER.readTree(body)) {
+            ids.add(task.get("id").asLong());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,34 @@
+#!/usr/bin/env bash
+# Runs a throwaway local Postgres for the load tests (no Docker, no network), with its data in target/loadtest-pg.
+#
+#   src/loadtest/postgres.sh start    # initialize (if needed) and start Postgres on port 5432
+#   src/loadtest/postgres.sh stop     # stop it
+#   src/loadtest/postgres.sh reset    # stop it and delete its data
+#
+# The app connects to it with the loadtest config profile (see application.properties).
+set -euo pipefail
+
+DATA_DIR="${LOADTEST_PG_DATA:-target/loadtest-pg}"
+PORT="${LOADTEST_PG_PORT:-5432}"
+
+case "${1:-start}" in
+  start)
+    if [ ! -d "$DATA_DIR" ]; then
+      initdb --pgdata="$DATA_DIR" --username=tasks --auth=trust --encoding=UTF8 > /dev/null
+    fi
+    pg_ctl --pgdata="$DATA_DIR" --log="$DATA_DIR/postgres.log" \
+      --options="-p $PORT -c max_connections=200 -c listen_addresses=localhost" --wait start
+    createdb --host=localhost --port="$PORT" --username=tasks tasks 2> /dev/null || true
+    ;;
+  stop)
+    pg_ctl --pgdata="$DATA_DIR" --wait stop
+    ;;
+  reset)
+    pg_ctl --pgdata="$DATA_DIR" --wait stop 2> /dev/null || true
+    rm -rf "$DATA_DIR"
+    ;;
+  *)
+    echo "usage: $0 [start|stop|reset]" >&2
+    exit 1
+    ;;
+esac
@@ -0,0 +1,268 @@
+package org.alexgraham.assets;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds the bundles of static assets (scripts, stylesheets and the icon sprite) which the pages load.
+ * <p>
+ * Each bundle (see assets/bundles.properties) is made from a list of classpath resources, such as the files
+ * in the web jars and META-INF/resources. The resources are concatenated (with the @imports of stylesheets
+ * inlined) and minified, and the bundle is named after the hash of its content (e.g. app.3f2a9c1b4d5e.js).
+ * Since a bundle's name changes whenever its content does, it can be cached by browsers forever.
+ * <p>
+ * The bundles are built by the Maven build (with {@link #main(String[])}), which writes each one with a
+ * gzip and a brotli compressed copy, and a manifest of the bundles' names. When the app is run without
+ * them (e.g. in dev mode, which skips that step), {@link Assets} builds the bundles when it starts.
+ */
+public final class AssetBundler {
+
+    /**
+     * The classpath resource which lists the bundles, and the resources each is made from.
+     */
+    static final String BUNDLES = "assets/bundles.properties";
+
+    /**
+     * The classpath directory the built bundles are written to.
+     */
+    static final String DIST = "assets/dist/";
+
+    /**
+     * The manifest of the built bundles, which maps each bundle to the (fingerprinted) name of its file.
+     */
+    static final String MANIFEST = DIST + "manifest.properties";
+
+    private static final Pattern CSS_IMPORT = Pattern.compile("@import\\s+(?:url\\()?[\"']([^\"']+)[\"']\\)?\\s*;");
+    private static final Pattern CSS_COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern CSS_SPACE_AROUND_PUNCTUATION = Pattern.compile("\\s*([{};,>])\\s*");
+
+    /**
+     * A bundle of assets.
+     *
+     * @param name      The name of the bundle (e.g. app.js).
+     * @param fileName  The fingerprinted name of the bundle's file (e.g. app.3f2a9c1b4d5e.js).
+     * @param content   The bundled (and minified) assets.
+     */
+    record Bundle(String name, String fileName, byte[] content) {}
+
+    private AssetBundler() {}
+
+    /**
+     * Builds the bundles, and writes them (with their compressed copies and the manifest) to the directory
+     * given as the first argument.
+     */
+    public static void main(String[] args) throws IOException {
+        Path outputDir = Path.of(args[0]);
+        Files.createDirectories(outputDir);
+
+        StringBuilder manifest = new StringBuilder("# The bundled assets, written by AssetBundler\n");
+        for (Bundle bundle : bundle(AssetBundler.class.getClassLoader())) {
+            Files.write(outputDir.resolve(bundle.fileName()), bundle.content());
+            Files.write(outputDir.resolve(bundle.fileName() + ".gz"), gzip(bundle.content()));
+            Optional<byte[]> brotli = brotli(bundle.content());
+            if (brotli.isPresent()) {
+                Files.write(outputDir.resolve(bundle.fileName() + ".br"), brotli.get());
+            } else {
+                System.out.println("[AssetBundler] brotli is not available on this platform; only gzip is used");
+            }
+            manifest.append(bundle.name()).append('=').append(bundle.fileName()).append('\n');
+            System.out.printf("[AssetBundler] %s -> %s (%d bytes)%n", bundle.name(), bundle.fileName(), bundle.content().length);
+        }
+        Files.writeString(outputDir.resolve("manifest.properties"), manifest);
+    }
+
+    /**
+     * Builds the bundles listed in {@link #BUNDLES}.
+     *
+     * @param loader    The class loader to read the listed resources from.
+     * @return          The bundles, ordered by name.
+     */
+    static List<Bundle> bundle(ClassLoader loader) throws IOException {
+        Properties bundles = properties(loader, BUNDLES)
+                .orElseThrow(() -> new IllegalStateException(BUNDLES + " is missing from the classpath"));
+
+        List<Bundle> built = new ArrayList<>();
+        for (String name : new TreeSet<>(bundles.stringPropertyNames())) {
+            StringBuilder content = new StringBuilder();
+            for (String resource : bundles.getProperty(name).split(",")) {
+                String path = resource.trim();
+                String text = read(loader, path);
+                if (name.endsWith(".css")) {
+                    content.append(minifyCss(inlineImports(loader, path, text))).append('\n');
+                } else if (name.endsWith(".js")) {
+                    // the semicolon ends the last statement of a script which left it off
+                    content.append(minifyJs(path, text)).append("\n;\n");
+                } else {
+                    content.append(text);
+                }
+            }
+            byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+            built.add(new Bundle(name, fingerprint(name, bytes), bytes));
+        }
+        return built;
+    }
+
+    /**
+     * @return  The name with the hash of the content before its extension (e.g. app.3f2a9c1b4d5e.js).
+     */
+    static String fingerprint(String name, byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            String hash = HexFormat.of().formatHex(digest, 0, 6);
+            int extension = name.lastIndexOf('.');
+            return name.substring(0, extension) + "." + hash + name.substring(extension);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 3);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * @return  The brotli compressed content; or empty if brotli is not available (it is a native library,
+     *          which is only on the classpath at build time).
+     */
+    static Optional<byte[]> brotli(byte[] content) {
+        try {
+            return Optional.of(Brotli.compress(content));
+        } catch (LinkageError | IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads a properties file from the classpath.
+     *
+     * @return  The properties; or empty if there is no such resource.
+     */
+    static Optional<Properties> properties(ClassLoader loader, String resource) throws IOException {
+        try (InputStream in = loader.getResourceAsStream(resource)) {
+            if (in == null) {
+                return Optional.empty();
+            }
+            Properties properties = new Properties();
+            properties.load(in);
+            return Optional.of(properties);
+        }
+    }
+
+    /**
+     * Reads a resource from the classpath.
+     *
+     * @return  The content of the resource; or null if there is no such resource.
+     */
+    static byte[] readBytes(ClassLoader loader, String resource) throws IOException {
+        try (InputStream in = loader.getResourceAsStream(resource)) {
+            return in == null ? null : in.readAllBytes();
+        }
+    }
+
+    private static String read(ClassLoader loader, String resource) throws IOException {
+        byte[] bytes = readBytes(loader, resource);
+        if (bytes == null) {
+            throw new IllegalStateException("Asset " + resource + " is missing from the classpath");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Replaces the @imports in a stylesheet with the stylesheets they import (which are resolved relative to it).
+     */
+    private static String inlineImports(ClassLoader loader, String path, String css) throws IOException {
+        String directory = path.substring(0, path.lastIndexOf('/') + 1);
+        Matcher matcher = CSS_IMPORT.matcher(css);
+        StringBuilder inlined = new StringBuilder();
+        while (matcher.find()) {
+            String imported = directory + matcher.group(1);
+            matcher.appendReplacement(inlined, Matcher.quoteReplacement(inlineImports(loader, imported, read(loader, imported))));
+        }
+        matcher.appendTail(inlined);
+        return inlined.toString();
+    }
+
+    // DEV NOTE: These are deliberately simple minifiers. The vendored scripts are already minified, so only
+    // our own (small) files go through them, and the bundles are compressed anyway. A full minifier would
+    // need a JavaScript toolchain in the build, which this project has managed without so far.
+    /**
+     * Removes the comments and the whitespace which is not needed from a stylesheet. Spaces around colons are
+     * kept, as they change the meaning of a selector (e.g. "a :hover").
+     */
+    static String minifyCss(String css) {
+        String minified = CSS_COMMENT.matcher(css).replaceAll("");
+        minified = minified.replaceAll("\\s+", " ");
+        minified = CSS_SPACE_AROUND_PUNCTUATION.matcher(minified).replaceAll("$1");
+        return minified.replace(";}", "}").trim();
+    }
+
+    /**
+     * Removes the indentation, blank lines and whole-line comments from a script. Line breaks are kept, so
+     * that automatic semicolon insertion works as it did. Scripts which are already minified, or which have
+     * template literals (where the whitespace is part of a string), are left as they are.
+     */
+    static String minifyJs(String path, String js) {
+        if (path.contains(".min.") || js.indexOf('`') >= 0) {
+            return js;
+        }
+        StringBuilder minified = new StringBuilder(js.length());
+        boolean inComment = false;
+        for (String line : js.split("\n")) {
+            String trimmed = line.strip();
+            if (!inComment && trimmed.startsWith("/*")) {
+                inComment = true;
+                trimmed = trimmed.substring(2);
+            }
+            if (inComment) {
+                int end = trimmed.indexOf("*/");
+                if (end < 0) {
+                    continue;
+                }
+                // keep any code after the end of the comment
+                inComment = false;
+                trimmed = trimmed.substring(end + 2).strip();
+            }
+            if (!trimmed.isEmpty() && !trimmed.startsWith("//")) {
+                minified.append(trimmed).append('\n');
+            }
+        }
+        return minified.toString();
+    }
+
+    /**
+     * Holds the references to brotli4j, so that they are only resolved if brotli is used.
+     */
+    private static final class Brotli {
+
+        static byte[] compress(byte[] content) throws IOException {
+            Brotli4jLoader.ensureAvailability();
+            return Encoder.compress(content, new Encoder.Parameters().setQuality(11));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.alexgraham.assets;
+
+import org.jboss.resteasy.reactive.RestHeader;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * Serves the bundles of static assets (see {@link Assets}).
+ * <p>
+ * Each bundle's file name has the hash of its content in it, so a response never goes stale: it is cached
+ * by browsers (and proxies) for a year, and marked immutable so that they don't revalidate it on reloads.
+ * The bundles are compressed ahead of time, and served in the best encoding the client accepts.
+ */
+@Path("/assets")
+public class AssetResource {
+
+    static final String CACHE_FOREVER = "public, max-age=31536000, immutable";
+
+    @Inject
+    Assets assets;
+
+    /**
+     * @param fileName          The fingerprinted file name of a bundle.
+     * @param acceptEncoding    The encodings the client accepts.
+     * @return                  200 with the bundle, in the best encoding the client accepts;
+     *                          404 if there is no such bundle (e.g. a bundle from an earlier version of the app).
+     */
+    @GET
+    @Path("/{fileName}")
+    public Response get(
+            @PathParam("fileName") String fileName,
+            @RestHeader("Accept-Encoding") String acceptEncoding
+    ) {
+        return assets.get(fileName).map(asset -> {
+            Response.ResponseBuilder response;
+            if (asset.brotli() != null && accepts(acceptEncoding, "br")) {
+                response = Response.ok(asset.brotli()).header(HttpHeaders.CONTENT_ENCODING, "br");
+            } else if (accepts(acceptEncoding, "gzip")) {
+                response = Response.ok(asset.gzip()).header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            } else {
+                response = Response.ok(asset.content());
+            }
+            return response
+                    .type(asset.contentType())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .header(HttpHeaders.CACHE_CONTROL, CACHE_FOREVER)
+                    .build();
+        }).orElseGet(() -> Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    /**
+     * @return  Whether the Accept-Encoding header accepts the encoding (i.e. it is listed, without q=0).
+     */
+    static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String accepted : acceptEncoding.split(",")) {
+            String[] parts = accepted.split(";");
+            if (parts[0].strip().equalsIgnoreCase(encoding)) {
+                for (int i = 1; i < parts.length; i++) {
+                    if (parts[i].strip().matches("q=0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+}
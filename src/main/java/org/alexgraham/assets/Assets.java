@@ -0,0 +1,97 @@
+package org.alexgraham.assets;
+
+import org.jboss.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Named;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * The bundles of static assets (see {@link AssetBundler}), which are held in memory and served by {@link AssetResource}.
+ * <p>
+ * Templates link to a bundle by its name, which resolves to the path of its fingerprinted file:
+ * <pre>{@code <script defer src="{inject:assets.path('app.js')}"></script>}</pre>
+ */
+@Named("assets")
+@ApplicationScoped
+public class Assets {
+
+    /**
+     * A bundle of assets, with its compressed copies.
+     *
+     * @param contentType   The media type of the bundle.
+     * @param content       The bundle.
+     * @param gzip          The gzip compressed bundle.
+     * @param brotli        The brotli compressed bundle; or null if it was not built with brotli.
+     */
+    record Asset(String contentType, byte[] content, byte[] gzip, byte[] brotli) {}
+
+    private static final Logger LOG = Logger.getLogger(Assets.class);
+
+    /**
+     * The name of each bundle's fingerprinted file, by the bundle's name.
+     */
+    private final Map<String, String> fileNames = new HashMap<>();
+
+    /**
+     * The bundles, by the names of their fingerprinted files.
+     */
+    private final Map<String, Asset> assets = new HashMap<>();
+
+    @PostConstruct
+    void init() throws IOException {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        Optional<Properties> manifest = AssetBundler.properties(loader, AssetBundler.MANIFEST);
+        if (manifest.isPresent()) {
+            for (String name : manifest.get().stringPropertyNames()) {
+                String fileName = manifest.get().getProperty(name);
+                add(name, fileName,
+                        AssetBundler.readBytes(loader, AssetBundler.DIST + fileName),
+                        AssetBundler.readBytes(loader, AssetBundler.DIST + fileName + ".gz"),
+                        AssetBundler.readBytes(loader, AssetBundler.DIST + fileName + ".br"));
+            }
+        } else {
+            // e.g. in dev mode, which doesn't run the build step; this also picks up changes to the assets on reload
+            LOG.info("The assets were not bundled by the build; bundling them now");
+            for (AssetBundler.Bundle bundle : AssetBundler.bundle(loader)) {
+                add(bundle.name(), bundle.fileName(), bundle.content(), AssetBundler.gzip(bundle.content()), null);
+            }
+        }
+    }
+
+    /**
+     * @param name  The name of a bundle (e.g. app.js).
+     * @throws      IllegalArgumentException if there is no such bundle.
+     * @return      The path the bundle is served from, with its fingerprinted file name.
+     */
+    public String path(String name) {
+        String fileName = fileNames.get(name);
+        if (fileName == null) {
+            throw new IllegalArgumentException("There is no asset bundle named " + name);
+        }
+        return "/assets/" + fileName;
+    }
+
+    /**
+     * @param fileName  The fingerprinted file name of a bundle.
+     * @return          The bundle; or empty if there is no bundle with that file name.
+     */
+    Optional<Asset> get(String fileName) {
+        return Optional.ofNullable(assets.get(fileName));
+    }
+
+    private void add(String name, String fileName, byte[] content, byte[] gzip, byte[] brotli) {
+        String contentType = switch (name.substring(name.lastIndexOf('.') + 1)) {
+            case "css" -> "text/css; charset=UTF-8";
+            case "svg" -> "image/svg+xml";
+            default -> "text/javascript; charset=UTF-8";
+        };
+        fileNames.put(name, fileName);
+        assets.put(fileName, new Asset(contentType, content, gzip, brotli));
+    }
+}
@@ -0,0 +1,132 @@
+package org.alexgraham.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.smallrye.mutiny.Uni;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * An in-process cache of entities by id.
+ * <p>
+ * Hibernate's second-level cache (enabled with {@link javax.persistence.Cacheable}) is not supported by Hibernate
+ * Reactive, so this cache is used explicitly: lookups go through {@link #get(Object, Supplier)}, and writers put the
+ * saved entity (or invalidate it) once their transaction has committed.
+ * <p>
+ * Every write bumps a stamp for the id (striped, so the stamps take constant memory). An entity loaded from the
+ * database is only cached if the stamp has not changed since the load started, so a slow load can never overwrite
+ * a newer write with a stale version of the entity.
+ * <p>
+ * Cached entities are detached, and shared between requests, so they must not be modified.
+ *
+ * @param <K>   The type of the entity's id.
+ * @param <E>   The type of the entity.
+ */
+public class EntityCache<K, E> {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Cache<K, E> cache;
+
+    private final long[] stamps = new long[LOCK_STRIPES];
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * @param maxSize   The max number of entities to cache.
+     * @param ttl       How long an entity is cached for, after it is loaded or saved.
+     */
+    public EntityCache(long maxSize, Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Gets the entity from the cache, or loads it (and caches it) if it isn't cached.
+     *
+     * @param id        The id of the entity.
+     * @param loader    Loads the entity from the database; it may return null if the entity doesn't exist.
+     * @return          The entity; or null if it doesn't exist.
+     */
+    public Uni<E> get(K id, Supplier<Uni<E>> loader) {
+        E cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Uni.createFrom().item(cached);
+        }
+        long stamp = stamp(id);
+        return loader.get().invoke(entity -> {
+            if (entity != null) {
+                putIfUnchanged(id, entity, stamp);
+            }
+        });
+    }
+
+    /**
+     * @return  The cached entity, without loading it if it isn't cached.
+     */
+    public Optional<E> getIfPresent(K id) {
+        return Optional.ofNullable(cache.getIfPresent(id));
+    }
+
+    /**
+     * Caches an entity which has just been saved (after the transaction has committed).
+     */
+    public void put(K id, E entity) {
+        int stripe = stripe(id);
+        synchronized (locks[stripe]) {
+            stamps[stripe]++;
+            cache.put(id, entity);
+        }
+    }
+
+    /**
+     * Publishes the cache's size, hits, misses and evictions as metrics.
+     *
+     * @param registry  The registry of the metrics.
+     * @param name      The name of the cache, which tags the metrics.
+     */
+    public EntityCache<K, E> bindTo(MeterRegistry registry, String name) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        return this;
+    }
+
+    /**
+     * Drops an entity from the cache (e.g. after it is changed without loading it).
+     */
+    public void invalidate(K id) {
+        int stripe = stripe(id);
+        synchronized (locks[stripe]) {
+            stamps[stripe]++;
+            cache.invalidate(id);
+        }
+    }
+
+    private long stamp(K id) {
+        int stripe = stripe(id);
+        synchronized (locks[stripe]) {
+            return stamps[stripe];
+        }
+    }
+
+    private void putIfUnchanged(K id, E entity, long stamp) {
+        int stripe = stripe(id);
+        synchronized (locks[stripe]) {
+            if (stamps[stripe] == stamp) {
+                cache.put(id, entity);
+            }
+        }
+    }
+
+    private static int stripe(Object id) {
+        return (id.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES;
+    }
+}
@@ -0,0 +1,42 @@
+package org.alexgraham.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.alexgraham.tasks.Task;
+import org.alexgraham.users.User;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Produces the {@link EntityCache} for each cached entity. The size and TTL of each cache can be
+ * configured with the entity-cache.{entity}.max-size and entity-cache.{entity}.ttl properties.
+ */
+@ApplicationScoped
+public class EntityCaches {
+
+    @Inject
+    MeterRegistry registry;
+
+    @Produces
+    @Singleton
+    EntityCache<Long, Task> taskCache(
+            @ConfigProperty(name = "entity-cache.task.max-size", defaultValue = "10000") long maxSize,
+            @ConfigProperty(name = "entity-cache.task.ttl", defaultValue = "10M") Duration ttl
+    ) {
+        return new EntityCache<Long, Task>(maxSize, ttl).bindTo(registry, "tasks.entities");
+    }
+
+    @Produces
+    @Singleton
+    EntityCache<UUID, User> userCache(
+            @ConfigProperty(name = "entity-cache.user.max-size", defaultValue = "10000") long maxSize,
+            @ConfigProperty(name = "entity-cache.user.ttl", defaultValue = "1H") Duration ttl
+    ) {
+        return new EntityCache<UUID, User>(maxSize, ttl).bindTo(registry, "users.entities");
+    }
+}
@@ -0,0 +1,93 @@
+package org.alexgraham.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical loads ("single flight"): while a load of a key is running, the other callers
+ * which load the same key wait for it and share its result, instead of running the same query again. So a burst
+ * of identical requests (e.g. a page's polls, several open tabs, or retried requests) costs a single query.
+ * <p>
+ * Only loads which are running at the same time are shared; nothing is kept once a load has finished (that is
+ * what the caches are for). A caller must not join a load which started before a write it needs to see, so the
+ * keys of loads whose data can change should include a stamp which the writes change (e.g. an epoch).
+ * <p>
+ * The result is shared between the callers, so it must not be modified.
+ *
+ * @param <K>   The type of the keys which identify the loads.
+ * @param <V>   The type of the loaded values.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Uni<V>> inFlight = new ConcurrentHashMap<>();
+
+    private Counter loads;
+    private Counter coalesced;
+
+    /**
+     * Loads the value for the key, or joins the load of it which is already running.
+     *
+     * @param key       Identifies the load; the loads of equal keys must have the same result.
+     * @param loader    Loads the value (e.g. from the database).
+     * @return          The loaded value.
+     */
+    public Uni<V> load(K key, Supplier<Uni<V>> loader) {
+        return Uni.createFrom().deferred(() -> {
+            AtomicBoolean started = new AtomicBoolean();
+            AtomicReference<Uni<V>> flight = new AtomicReference<>();
+            flight.set(inFlight.computeIfAbsent(key, ignored -> {
+                started.set(true);
+                return loader.get()
+                        .onTermination().invoke(() -> inFlight.remove(key, flight.get()))
+                        .memoize().indefinitely();
+            }));
+            if (started.get()) {
+                increment(loads);
+                return flight.get();
+            }
+            increment(coalesced);
+            // The load runs on the context of the caller which started it, so hand the result back to this
+            // caller's context (e.g. its request's event loop) before it carries on
+            Context context = Vertx.currentContext();
+            return context == null
+                    ? flight.get()
+                    : flight.get().emitOn(command -> context.runOnContext(ignored -> command.run()));
+        });
+    }
+
+    /**
+     * Publishes the number of loads which were run, the number which joined a running load instead, and the
+     * number which are running, as metrics.
+     *
+     * @param registry  The registry of the metrics.
+     * @param name      The name of the loads (e.g. "tasks.lists.queries"), which prefixes the metrics.
+     */
+    public SingleFlight<K, V> bindTo(MeterRegistry registry, String name) {
+        loads = Counter.builder(name + ".loads")
+                .description("The number of loads which were run")
+                .register(registry);
+        coalesced = Counter.builder(name + ".coalesced")
+                .description("The number of loads which joined an identical load which was already running")
+                .register(registry);
+        Gauge.builder(name + ".in-flight", inFlight, Map::size)
+                .description("The number of loads which are running")
+                .register(registry);
+        return this;
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.alexgraham.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The metrics of the HTTP endpoints.
+ * <p>
+ * The latency and count of the requests to each endpoint are recorded by Quarkus (as http.server.requests,
+ * tagged by the URI template, method and status); this adds the histograms for their percentiles, and a
+ * gauge of the requests in flight.
+ */
+// DEV NOTE: The requests in flight are counted by the HTTP server's router, rather than by a pair of JAX-RS
+// request/response filters: the response filters run when a response's headers are sent, so a streamed response
+// (e.g. the Server-Sent Events, or an export) would stop counting long before it ended, and a request which fails
+// before the response filters run would never stop counting at all.
+@ApplicationScoped
+public class HttpMetrics {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Inject
+    MeterRegistry registry;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("http.server.requests.active", inFlight, AtomicInteger::get)
+                .description("The number of requests in flight")
+                .register(registry);
+    }
+
+    @Produces
+    @Singleton
+    MeterFilter requestHistograms() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getName().startsWith("http.server.requests")) {
+                    return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+                }
+                return config;
+            }
+        };
+    }
+
+    /**
+     * Counts each request as in flight from when the router receives it, until its response has been written out
+     * in full, or its connection has closed (e.g. when the client disconnects from a stream).
+     */
+    void countRequestsInFlight(@Observes Router router) {
+        router.route().order(Integer.MIN_VALUE).handler(this::requestStarted);
+    }
+
+    private void requestStarted(RoutingContext context) {
+        inFlight.incrementAndGet();
+        AtomicBoolean finished = new AtomicBoolean();
+        context.addEndHandler(ignored -> {
+            if (finished.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        });
+        context.next();
+    }
+}
@@ -2,6 +2,7 @@ package org.alexgraham.tasks;
 
 import io.quarkus.qute.CheckedTemplate;
 import io.quarkus.qute.TemplateInstance;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import org.jboss.resteasy.reactive.RestCookie;
 
@@ -10,32 +11,90 @@ import javax.inject.Inject;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import java.util.List;
 
 @Path("/my-tasks")
 @ApplicationScoped
 public class MyTaskResource {
 
+    /**
+     * The number of rendered Tasks written to the response at a time, when the Tasks are streamed.
+     */
+    static final int STREAM_RENDER_CHUNK_SIZE = 50;
+
     @Inject
     TaskService service;
 
+    @Inject
+    TaskFragments fragments;
+
+    @Inject
+    TaskMetrics metrics;
+
     @CheckedTemplate
     public static class Template {
-        public static native TemplateInstance show(List<Task> tasks);
+        /**
+         * Template for the Task view (see resources/templates/MyTaskResource/show.html).
+         */
+        public static native TemplateInstance show(TaskPage page);
+
+        /**
+         * Template for the start of the Task view with all the Tasks, up to where they are streamed in
+         * (see resources/templates/MyTaskResource/showAllStart.html).
+         */
+        public static native TemplateInstance showAllStart();
+
+        /**
+         * Template for the end of the Task view with all the Tasks, after they are streamed in
+         * (see resources/templates/MyTaskResource/showAllEnd.html).
+         */
+        public static native TemplateInstance showAllEnd();
+    }
+
+    /**
+     * Displays the overall Task view. Only the first page of Open Tasks is rendered; the rest
+     * are loaded as the user scrolls.
+     *
+     * @param userId    The current User who is working with their Tasks.
+     * @param request   The request, whose If-None-Match header is checked against the page's ETag.
+     * @return          200 with the rendered page;
+     *                  304 if the User's Tasks have not changed since the ETag in If-None-Match.
+     */
+    @GET
+    @Produces(MediaType.TEXT_HTML)
+    public Uni<Response> show(@RestCookie String userId, @Context Request request) {
+        return TaskResource.conditionalGet(request, service.listVersion(userId), "page", () -> service.queryPageByOwner(userId, List.of(), null, null)
+                .map(page -> Response.ok(metrics.render(Template.show(page)))));
     }
 
+    // DEV NOTE: Qute renders a template in one go, once its data is loaded, so the page is rendered in two parts
+    // (the start and the end of the page), and the Tasks are streamed in between. HTMX swaps a response in once it
+    // has all arrived, so this only helps a page the browser loads itself (the Task view links to it without
+    // boosting the link); the lists loaded by HTMX stay paginated.
     /**
-     * Displays the overall Task view.
+     * Displays the overall Task view with all the Open Tasks, for very long lists. The page is streamed: the
+     * top of the page is sent at once, and then the Tasks are rendered and sent as they are read from the
+     * database (a chunk at a time, see {@link TaskService#streamSummariesByOwner(String, List)}), so the browser
+     * paints the first Tasks right away, and the memory used doesn't grow with the number of Tasks.
      *
      * @param userId    The current User who is working with their Tasks.
-     * @return          The HTML template.
+     * @return          The chunks of the page.
      */
     @GET
+    @Path("/all")
     @Produces(MediaType.TEXT_HTML)
-    public Uni<TemplateInstance> show(@RestCookie String userId) {
-        return service.queryByOwner(userId, List.of())
-                .map(Template::show);
+    public Multi<String> showAll(@RestCookie String userId) {
+        return Multi.createBy().concatenating().streams(
+                Multi.createFrom().item(() -> metrics.render(Template.showAllStart())),
+                service.streamSummariesByOwner(userId, List.of())
+                        .map(task -> fragments.render(task).getValue())
+                        .group().intoLists().of(STREAM_RENDER_CHUNK_SIZE)
+                        .map(chunk -> String.join("\n", chunk)),
+                Multi.createFrom().item(() -> metrics.render(Template.showAllEnd())));
     }
 
 }
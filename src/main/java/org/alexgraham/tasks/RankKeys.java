@@ -0,0 +1,214 @@
+package org.alexgraham.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the rank keys which order an Owner's Tasks.
+ * <p>
+ * A rank key is a string of base-36 digits (0-9a-z), which is read as a fraction between 0 and 1 (so "i" is
+ * 0.5, and sorts before "i1" and after "hz"). Keys sort lexicographically, and there is always room for a new
+ * key between any two keys. A Task can be moved by giving it a key between its new neighbours, without
+ * touching any other Task (this is the idea behind fractional indexing and Jira's LexoRank).
+ * <p>
+ * Keys never end in "0" (it would be redundant as a fraction, and leave no room before the key). New Tasks are
+ * appended with a fixed step in the first {@link #WIDTH} digits, so the keys only grow longer when the user
+ * repeatedly moves Tasks into the same gap. Keys longer than {@link #MAX_LENGTH} should be re-balanced with
+ * {@link #evenlySpaced(int)}.
+ */
+// DEV NOTE: The digits have the same order in ASCII and in the "C" collation of the rank_key column. Don't add
+// upper-case or punctuation characters, as other collations (e.g. en_US) may sort them differently.
+final class RankKeys {
+
+    static final String DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    /**
+     * The number of leading digits used for the fixed step between appended Tasks.
+     */
+    static final int WIDTH = 6;
+
+    /**
+     * Keys longer than this have lost precision from repeated moves, and should be re-balanced.
+     */
+    static final int MAX_LENGTH = 12;
+
+    private static final int BASE = DIGITS.length();
+
+    private static final long SPACE = pow(BASE, WIDTH);
+
+    // Leaves room for ~1.6 million appended Tasks before keys have to grow past WIDTH
+    private static final long STEP = pow(BASE, 2);
+
+    private RankKeys() {}
+
+    /**
+     * @return  The key for the first Task an Owner ranks.
+     */
+    static String first() {
+        return format(STEP, WIDTH);
+    }
+
+    /**
+     * Creates a key that sorts after the given key, for appending a Task to the end of the list.
+     *
+     * @param last  The key of the last Task; if null, the list is empty.
+     * @return      The new key.
+     */
+    static String after(String last) {
+        if (last == null) {
+            return first();
+        }
+        long next = head(last) + STEP;
+        return next < SPACE ? format(next, WIDTH) : between(last, null);
+    }
+
+    /**
+     * Creates a key that sorts between the two given keys.
+     *
+     * @param before    The key the new key must sort after; if null, the new key goes first.
+     * @param after     The key the new key must sort before; if null, the new key goes last.
+     * @throws          IllegalArgumentException if either key is malformed, or before does not sort before after.
+     * @return          The new key.
+     */
+    static String between(String before, String after) {
+        validate(before);
+        validate(after);
+        if (before != null && after != null && before.compareTo(after) >= 0) {
+            throw new IllegalArgumentException(before + " does not sort before " + after);
+        }
+        return midpoint(before == null ? "" : before, after);
+    }
+
+    /**
+     * Creates a number of keys between the two given keys, spread out to keep them short (e.g. for moving a
+     * block of Tasks into one gap).
+     *
+     * @param before    The key the new keys must sort after; if null, the new keys go first.
+     * @param after     The key the new keys must sort before; if null, the new keys go last.
+     * @param count     The number of keys to create.
+     * @return          The new keys, in sorted order.
+     */
+    static List<String> between(String before, String after, int count) {
+        List<String> keys = new ArrayList<>(count);
+        fill(before, after, count, keys);
+        return keys;
+    }
+
+    /**
+     * Creates a fresh set of short, evenly spaced keys for re-balancing an Owner's list.
+     *
+     * @param count     The number of keys to create.
+     * @return          The new keys, in sorted order.
+     */
+    static List<String> evenlySpaced(int count) {
+        int width = WIDTH;
+        long space = SPACE;
+        long step = STEP;
+        // only for very long lists: widen the keys until the Tasks fit with the regular step
+        while (space / step <= count) {
+            width++;
+            space *= BASE;
+        }
+        List<String> keys = new ArrayList<>(count);
+        for (long i = 1; i <= count; i++) {
+            keys.add(format(i * step, width));
+        }
+        return keys;
+    }
+
+    /**
+     * @return  Whether the key is long enough that the Owner's list should be re-balanced.
+     */
+    static boolean needsRebalance(String key) {
+        return key != null && key.length() > MAX_LENGTH;
+    }
+
+    private static void fill(String before, String after, int count, List<String> keys) {
+        if (count == 0) {
+            return;
+        }
+        String middle = between(before, after);
+        int leftCount = (count - 1) / 2;
+        fill(before, middle, leftCount, keys);
+        keys.add(middle);
+        fill(middle, after, count - 1 - leftCount, keys);
+    }
+
+    /**
+     * Finds the (shortest) key between a and b. Based on the midpoint function in
+     * https://github.com/rocicorp/fractional-indexing
+     *
+     * @param a     The lower bound, or an empty string for no lower bound.
+     * @param b     The upper bound, or null for no upper bound.
+     */
+    private static String midpoint(String a, String b) {
+        if (b != null) {
+            // skip the common prefix (reading missing digits of a as 0, as it is a fraction)
+            int n = 0;
+            while ((n < a.length() ? a.charAt(n) : '0') == b.charAt(n)) {
+                n++;
+            }
+            if (n > 0) {
+                return b.substring(0, n) + midpoint(n < a.length() ? a.substring(n) : "", b.substring(n));
+            }
+        }
+        int digitA = a.isEmpty() ? 0 : DIGITS.indexOf(a.charAt(0));
+        int digitB = b == null ? BASE : DIGITS.indexOf(b.charAt(0));
+        if (digitB - digitA > 1) {
+            return String.valueOf(DIGITS.charAt((digitA + digitB + 1) / 2));
+        } else if (b != null && b.length() > 1) {
+            return b.substring(0, 1);
+        } else {
+            return DIGITS.charAt(digitA) + midpoint(a.isEmpty() ? "" : a.substring(1), null);
+        }
+    }
+
+    /**
+     * @return  The first {@link #WIDTH} digits of the key, as a number.
+     */
+    private static long head(String key) {
+        long value = 0;
+        for (int i = 0; i < WIDTH; i++) {
+            value = value * BASE + (i < key.length() ? DIGITS.indexOf(key.charAt(i)) : 0);
+        }
+        return value;
+    }
+
+    /**
+     * Formats the value as a key of the given width, without the trailing zeros.
+     */
+    private static String format(long value, int width) {
+        char[] digits = new char[width];
+        for (int i = width - 1; i >= 0; i--) {
+            digits[i] = DIGITS.charAt((int) (value % BASE));
+            value /= BASE;
+        }
+        int length = width;
+        while (length > 1 && digits[length - 1] == '0') {
+            length--;
+        }
+        return new String(digits, 0, length);
+    }
+
+    private static void validate(String key) {
+        if (key == null) {
+            return;
+        }
+        if (key.isEmpty() || key.endsWith("0")) {
+            throw new IllegalArgumentException("invalid rank key: " + key);
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (DIGITS.indexOf(key.charAt(i)) < 0) {
+                throw new IllegalArgumentException("invalid rank key: " + key);
+            }
+        }
+    }
+
+    private static long pow(int base, int exponent) {
+        long value = 1;
+        for (int i = 0; i < exponent; i++) {
+            value *= base;
+        }
+        return value;
+    }
+}
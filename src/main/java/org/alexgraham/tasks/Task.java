@@ -1,23 +1,50 @@
 package org.alexgraham.tasks;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import io.quarkus.hibernate.reactive.panache.PanacheEntity;
+import io.quarkus.hibernate.reactive.panache.PanacheEntityBase;
 import org.alexgraham.users.User;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.Type;
 
-import javax.persistence.Cacheable;
 import javax.persistence.Column;
+import javax.persistence.ColumnResult;
 import javax.persistence.Entity;
+import javax.persistence.EntityResult;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.SqlResultSetMapping;
 import javax.persistence.Table;
+import javax.persistence.Version;
+import java.util.UUID;
 
+// DEV NOTE: @DynamicUpdate makes Hibernate write only the changed columns, so that saving a new title can't
+// write back a stale rank key (which is not versioned, see Task#version), and the other way round.
 @Entity
-@Cacheable
+@DynamicUpdate
 @Table(name = "task", schema = "public")
-public class Task extends PanacheEntity {
+@SqlResultSetMapping(
+        name = Task.SEARCH_RESULT_MAPPING,
+        entities = @EntityResult(entityClass = Task.class),
+        columns = {
+                @ColumnResult(name = "title_highlight"),
+                @ColumnResult(name = "description_highlight"),
+                @ColumnResult(name = "score", type = Double.class)
+        })
+public class Task extends PanacheEntityBase {
+
+    /**
+     * Maps each row of the search query to the Task, its highlighted title and description, and its score
+     * (see {@link TaskService#search(String, String, Integer)}).
+     */
+    static final String SEARCH_RESULT_MAPPING = "TaskSearchResult";
 
 
     // DEV NOTE: Use enum for "Complete" state as opposed to a boolean. It leaves the door open for extension
@@ -66,6 +93,19 @@ public class Task extends PanacheEntity {
         record NotModified() implements Task.Result {}
     }
 
+    // DEV NOTE: Unlike PanacheEntity (which takes each id from the shared hibernate_sequence with its own
+    // nextval), the Task sequence increments in blocks: each nextval reserves ALLOCATION_SIZE ids, which
+    // Hibernate hands out from memory. So a batch of a thousand new Tasks takes a handful of round-trips.
+    /**
+     * The number of ids reserved by each call to the Task id sequence.
+     */
+    static final int ALLOCATION_SIZE = 50;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_seq")
+    @SequenceGenerator(name = "task_seq", sequenceName = "task_seq", allocationSize = ALLOCATION_SIZE)
+    public Long id;
+
     @Column(length = 128)
     private String title;
 
@@ -73,6 +113,13 @@ public class Task extends PanacheEntity {
     @JoinColumn(name="ownerid", nullable=false)
     private User owner;
 
+    // DEV NOTE: This maps the owner's id a second time (read-only), so that it can be read without
+    // fetching the lazy owner; under Hibernate Reactive, that would need its own round-trip.
+    @JsonIgnore
+    @Type(type = "pg-uuid")
+    @Column(name = "ownerid", insertable = false, updatable = false)
+    private UUID ownerId;
+
     @Column(length = 2048, nullable = true)
     private String description;
 
@@ -84,11 +131,58 @@ public class Task extends PanacheEntity {
     @Column(nullable = false)
     private State state = State.Open;
 
+    // DEV NOTE: The "C" collation compares the rank keys byte by byte, which matches the ordering of
+    // String::compareTo in RankKeys. The default collation of the database may not (e.g. en_US ignores punctuation).
+    /**
+     * The key which orders the Task amongst its Owner's other Tasks (see {@link RankKeys}).
+     */
+    @JsonIgnore
+    @OptimisticLock(excluded = true)
+    @Column(name = "rank_key", nullable = false, columnDefinition = "varchar(255) collate \"C\"")
+    private String rank;
+
+    // DEV NOTE: Re-ranking doesn't change the version (see @OptimisticLock above). The order is merged by
+    // RankKeys rather than overwritten, and a version bumped by every drag would make the edits open in the
+    // user's other tabs (or even in the same tab, whose forms still hold the old version) fail for no reason.
+    /**
+     * The version of the Task, which goes up with each change to its title, description or state. Clients
+     * send the version they have (as If-Match, or a form field), and a change is only saved if it is still
+     * the current version; otherwise the client is sent the current Task, rather than overwriting it unseen.
+     * <p>
+     * Hibernate checks and increments the version when it saves a loaded Task; the UPDATE queries of
+     * {@link TaskService} do so themselves.
+     */
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     public Task() {}
 
     public Task(String title, User owner) {
         this.title = title;
         this.owner = owner;
+        this.ownerId = owner == null ? null : owner.getId();
+    }
+
+    // DEV NOTE: This constructor is called by the list queries (see TaskService.LIST_PROJECTION), so it must be public.
+    /**
+     * Creates a summary of a Task: just the fields shown in a list of Tasks, without the description
+     * (which is loaded separately, when the user opens the Task's details).
+     *
+     * @param id        The Task's id.
+     * @param title     The Task's title.
+     * @param state     The Task's state.
+     * @param rank      The Task's rank key.
+     * @param ownerId   The id of the Task's owner.
+     * @param version   The Task's version.
+     */
+    public Task(Long id, String title, State state, String rank, UUID ownerId, long version) {
+        this.id = id;
+        this.title = title;
+        this.state = state;
+        this.rank = rank;
+        this.ownerId = ownerId;
+        this.version = version;
     }
 
     /**
@@ -106,10 +200,45 @@ public class Task extends PanacheEntity {
         return this;
     }
 
+    /**
+     * @return  A detached copy of this Task, which can be changed without changing this instance
+     *          (e.g. when this instance is shared through a cache).
+     */
+    Task copy() {
+        Task copy = new Task(title, owner);
+        copy.id = id;
+        copy.ownerId = ownerId;
+        copy.description = description;
+        copy.state = state;
+        copy.rank = rank;
+        copy.version = version;
+        return copy;
+    }
+
+    /**
+     * @return  This Task, with the next version (for when it has been saved by an UPDATE query, which
+     *          incremented the version in the database).
+     */
+    Task nextVersion() {
+        this.version++;
+        return this;
+    }
+
+    /**
+     * @return  A summary of this Task, with only the fields shown in a list (see {@link #Task(Long, String, State, String, UUID, long)}).
+     */
+    Task summary() {
+        return new Task(id, title, state, rank, ownerId, version);
+    }
+
     public String getTitle() {
         return title;
     }
 
+    public UUID getOwnerId() {
+        return ownerId;
+    }
+
     /**
      * Sets the Title attribute of the Task, unless the given title is null or an empty string.
      *
@@ -127,10 +256,29 @@ public class Task extends PanacheEntity {
         return description;
     }
 
+    public String getRank() {
+        return rank;
+    }
+
+    /**
+     * Sets the rank key, which places the Task amongst its Owner's other Tasks.
+     *
+     * @param newRank   The new rank key.
+     * @return          This instance of the Task.
+     */
+    public Task setRank(String newRank) {
+        this.rank = newRank;
+        return this;
+    }
+
     public State getState() {
         return this.state;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     @JsonIgnore
     public boolean isComplete() {
         return State.Complete.equals(state);
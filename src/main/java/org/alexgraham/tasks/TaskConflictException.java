@@ -0,0 +1,21 @@
+package org.alexgraham.tasks;
+
+/**
+ * Exception thrown when a Task is changed from a version which is no longer current (e.g. because it was
+ * changed in another tab since). It carries the current Task, so that the client can be shown it.
+ */
+public class TaskConflictException extends RuntimeException {
+
+    private final Task current;
+
+    /**
+     * @param current   The current version of the Task.
+     */
+    public TaskConflictException(Task current) {
+        this.current = current;
+    }
+
+    public Task getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,39 @@
+package org.alexgraham.tasks;
+
+import java.util.UUID;
+
+/**
+ * A change to one of an Owner's Tasks, which is pushed to the Owner's open views (see {@link TaskEventBroadcaster}).
+ *
+ * @param type          What happened to the Task.
+ * @param task          The Task, as it was saved.
+ * @param previousId    For Moved events: the id of the Task now directly before it (null if it is now first).
+ */
+public record TaskEvent(Type type, Task task, Long previousId) {
+
+    /**
+     * The kinds of changes to a Task.
+     */
+    public enum Type {
+        Created,
+        Updated,
+        Completed,
+        Reopened,
+        Moved;
+
+        /**
+         * @return  The name of the Server-Sent Event (e.g. "created").
+         */
+        public String eventName() {
+            return name().toLowerCase();
+        }
+    }
+
+    public TaskEvent(Type type, Task task) {
+        this(type, task, null);
+    }
+
+    public UUID ownerId() {
+        return task.getOwnerId();
+    }
+}
@@ -0,0 +1,90 @@
+package org.alexgraham.tasks;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.BackPressureStrategy;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fans out the {@link TaskEvent}s of each Owner to all of their subscribers (e.g. their open browser tabs).
+ * <p>
+ * A subscriber is just an emitter in a map, so thousands of idle subscribers cost no threads: an event is
+ * emitted on the thread which published it, and written out by the non-blocking HTTP layer.
+ */
+// DEV NOTE: This is in-process, so it only reaches the subscribers connected to this instance. If we ran more
+// than one instance, the events would have to go through a shared channel (e.g. Postgres LISTEN/NOTIFY).
+@ApplicationScoped
+public class TaskEventBroadcaster {
+
+    /**
+     * The number of events which are buffered for a slow subscriber, before its stream fails (the client
+     * then reconnects, and reloads its list).
+     */
+    static final int SUBSCRIBER_BUFFER_SIZE = 256;
+
+    private final Map<UUID, Set<MultiEmitter<? super TaskEvent>>> subscribers = new ConcurrentHashMap<>();
+
+    @Inject
+    MeterRegistry registry;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("tasks.events.subscribers", this, TaskEventBroadcaster::subscriberCount)
+                .description("The number of open Server-Sent Event streams")
+                .register(registry);
+    }
+
+    /**
+     * Subscribes to the events of an Owner's Tasks.
+     *
+     * @param ownerId   The Owner of the Tasks.
+     * @throws          IllegalArgumentException if the Owner is null (e.g. the user id cookie is missing).
+     * @return          The events, from the time of subscription, until the subscriber cancels.
+     */
+    // DEV NOTE: The emitter is added and removed inside compute() calls, which are atomic per Owner. Otherwise a
+    // subscriber could be added to an Owner's set just after the last one had been removed from it (and the set
+    // dropped from the map), so it would never receive an event.
+    public Multi<TaskEvent> subscribe(UUID ownerId) {
+        if (ownerId == null) {
+            throw new IllegalArgumentException("ownerId must not be null");
+        }
+        return Multi.createFrom().<TaskEvent>emitter(emitter -> {
+                    subscribers.compute(ownerId, (ignored, emitters) -> {
+                        Set<MultiEmitter<? super TaskEvent>> owned = emitters != null ? emitters : ConcurrentHashMap.newKeySet();
+                        owned.add(emitter);
+                        return owned;
+                    });
+                    emitter.onTermination(() -> subscribers.computeIfPresent(ownerId, (ignored, emitters) -> {
+                        emitters.remove(emitter);
+                        return emitters.isEmpty() ? null : emitters;
+                    }));
+                }, BackPressureStrategy.ERROR)
+                .onOverflow().buffer(SUBSCRIBER_BUFFER_SIZE);
+    }
+
+    /**
+     * Publishes an event to all the subscribers of the Task's Owner.
+     */
+    public void publish(TaskEvent event) {
+        Set<MultiEmitter<? super TaskEvent>> emitters = subscribers.get(event.ownerId());
+        if (emitters != null) {
+            emitters.forEach(emitter -> emitter.emit(event));
+        }
+    }
+
+    /**
+     * @return  The number of subscribers, across all Owners.
+     */
+    public int subscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+}
@@ -0,0 +1,102 @@
+package org.alexgraham.tasks;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.qute.RawString;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * A cache of the HTML of the Tasks in lists (see TaskResource/task.html), so that rendering a list only renders
+ * the Tasks which changed since it was last rendered. The lists splice the cached HTML of each Task in:
+ * <pre>{@code {#for task in page.tasks()}{inject:taskFragments.render(task)}{/for}}</pre>
+ * <p>
+ * A Task in a list is rendered from its id, title, state and version (its details are loaded when they are
+ * opened), and the version changes whenever the title or state do. So each fragment is kept with the version it
+ * was rendered from, and is only used for that version of the Task. {@link TaskService} also drops the fragments
+ * of the Tasks it changes, so they don't take up the cache until they are evicted.
+ * <p>
+ * Only the plain list variant of a Task is cached: the variants with the details open, or with search matches
+ * highlighted, are rendered for a single response and are not worth keeping.
+ */
+@Named("taskFragments")
+@ApplicationScoped
+public class TaskFragments {
+
+    /**
+     * The rendered HTML of a Task.
+     *
+     * @param version   The version of the Task it was rendered from.
+     * @param html      The HTML.
+     */
+    record Fragment(long version, RawString html) {
+
+        boolean isRenderedFrom(Task task) {
+            return version == task.getVersion();
+        }
+    }
+
+    @ConfigProperty(name = "tasks.fragments.max-size", defaultValue = "10000")
+    long maxSize;
+
+    @Inject
+    TaskMetrics metrics;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Cache<Long, Fragment> cache;
+
+    // DEV NOTE: package-private, so that the benchmarks (see src/jmh) can render with a plain Qute engine
+    Function<Task, String> renderer;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        renderer = task -> metrics.render(TaskResource.Template.task(task));
+        CaffeineCacheMetrics.monitor(registry, cache, "tasks.fragments");
+    }
+
+    /**
+     * Renders a Task as it appears in a list, from the cache if it has not changed since it was last rendered.
+     *
+     * @param task      The Task to render.
+     * @return          The HTML of the Task (which is not escaped again when it is spliced into a template).
+     */
+    public RawString render(Task task) {
+        Fragment fragment = cache.getIfPresent(task.id);
+        if (fragment == null || !fragment.isRenderedFrom(task)) {
+            fragment = new Fragment(task.getVersion(), new RawString(renderer.apply(task)));
+            cache.put(task.id, fragment);
+        }
+        return fragment.html();
+    }
+
+    /**
+     * Drops the fragments of changed Tasks.
+     *
+     * @param tasks     The Tasks which changed.
+     */
+    public void invalidate(Collection<Task> tasks) {
+        cache.invalidateAll(tasks.stream().map(task -> task.id).toList());
+    }
+
+    // DEV NOTE: package-private for the benchmarks (see src/jmh)
+    /**
+     * Drops all the fragments.
+     */
+    void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,222 @@
+package org.alexgraham.tasks;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An in-process cache of each Owner's ranked Task lists, which lets repeat views of a list skip the database.
+ * <p>
+ * There is an entry per Owner and filter of {@link Task.State}s. An entry holds the Owner's first Tasks in rank
+ * order, up to a configurable number of Tasks, so that the first pages of even very long lists are served
+ * from memory. The cache is bounded by the total number of Tasks it holds, and entries expire after a TTL.
+ * <p>
+ * {@link TaskService} keeps the entries up to date when it changes Tasks: a saved Task is placed into (or
+ * removed from) each of its Owner's entries by its rank and state, so writes don't throw away the lists.
+ */
+@ApplicationScoped
+public class TaskListCache {
+
+    private static final Comparator<Task> RANK_ORDER = Comparator.comparing(Task::getRank)
+            .thenComparing(task -> task.id);
+
+    /**
+     * All the possible filters of Task States (a list is cached per Owner and filter).
+     */
+    private static final List<Set<Task.State>> STATE_FILTERS = stateFilters();
+
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Identifies a cached list.
+     */
+    record Key(UUID ownerId, Set<Task.State> states) {
+        Key {
+            states = Set.copyOf(states);
+        }
+    }
+
+    /**
+     * A cached list.
+     *
+     * @param tasks     The first Tasks of the list, in rank order.
+     * @param complete  Whether the Tasks are the whole list; if false, the list continues after them.
+     */
+    record Entry(List<Task> tasks, boolean complete) {}
+
+    @ConfigProperty(name = "tasks.cache.max-tasks", defaultValue = "100000")
+    long maxTasks;
+
+    @ConfigProperty(name = "tasks.cache.max-list-size", defaultValue = "1000")
+    int maxListSize;
+
+    @ConfigProperty(name = "tasks.cache.ttl", defaultValue = "5M")
+    Duration ttl;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Cache<Key, Entry> cache;
+
+    // Each write bumps the epoch of its Owner's stripe. A list loaded from the database is only cached if
+    // no write happened while it was loading, otherwise it could be stale.
+    private final long[] epochs = new long[LOCK_STRIPES];
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxTasks)
+                // weigh each entry by its number of Tasks (plus one, so empty lists still count)
+                .weigher((Key key, Entry entry) -> entry.tasks().size() + 1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        CaffeineCacheMetrics.monitor(registry, cache, "tasks.lists");
+        Gauge.builder("tasks.lists.cached.tasks", this, TaskListCache::cachedTasks)
+                .description("The number of Tasks held in the cached lists")
+                .register(registry);
+    }
+
+    /**
+     * @return  The max number of Tasks to cache per list.
+     */
+    int maxListSize() {
+        return maxListSize;
+    }
+
+    /**
+     * @return  The cached list, or null if it isn't cached.
+     */
+    Entry get(Key key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Captures the Owner's epoch, before loading one of their lists from the database.
+     */
+    long epoch(UUID ownerId) {
+        int stripe = stripe(ownerId);
+        synchronized (locks[stripe]) {
+            return epochs[stripe];
+        }
+    }
+
+    /**
+     * Caches a list loaded from the database, unless the Owner's Tasks have changed since it started loading.
+     *
+     * @param key       The list.
+     * @param tasks     The Tasks loaded from the database; at most {@link #maxListSize()} + 1 of them.
+     * @param epoch     The Owner's epoch from before the Tasks were loaded.
+     */
+    void put(Key key, List<Task> tasks, long epoch) {
+        Entry entry = tasks.size() > maxListSize
+                ? new Entry(List.copyOf(tasks.subList(0, maxListSize)), false)
+                : new Entry(List.copyOf(tasks), true);
+        int stripe = stripe(key.ownerId());
+        synchronized (locks[stripe]) {
+            if (epochs[stripe] == epoch) {
+                cache.put(key, entry);
+            }
+        }
+    }
+
+    /**
+     * Updates the Owner's cached lists with the saved Tasks (e.g. after they are created, changed or moved).
+     *
+     * @param ownerId   The Owner of the Tasks.
+     * @param tasks     The saved Tasks.
+     */
+    void onSaved(UUID ownerId, List<Task> tasks) {
+        int stripe = stripe(ownerId);
+        synchronized (locks[stripe]) {
+            epochs[stripe]++;
+            for (Set<Task.State> states : STATE_FILTERS) {
+                cache.asMap().computeIfPresent(new Key(ownerId, states), (key, entry) -> place(entry, states, tasks));
+            }
+        }
+    }
+
+    /**
+     * Updates the Owner's cached lists with the saved Task.
+     */
+    void onSaved(UUID ownerId, Task task) {
+        onSaved(ownerId, List.of(task));
+    }
+
+    /**
+     * Drops all the Owner's cached lists (e.g. after many of their Tasks changed).
+     */
+    void invalidate(UUID ownerId) {
+        int stripe = stripe(ownerId);
+        synchronized (locks[stripe]) {
+            epochs[stripe]++;
+            for (Set<Task.State> states : STATE_FILTERS) {
+                cache.invalidate(new Key(ownerId, states));
+            }
+        }
+    }
+
+    /**
+     * @return  The number of Tasks held in the cached lists (the hits, misses and evictions of the cache are
+     *          published as the tasks.lists cache metrics).
+     */
+    long cachedTasks() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    /**
+     * Places the saved Tasks into a cached list: each Task is removed from its old position, and inserted at its
+     * new position if it matches the list's filter (and the position is within the cached part of the list).
+     */
+    private static Entry place(Entry entry, Set<Task.State> states, List<Task> saved) {
+        List<Task> tasks = new ArrayList<>(entry.tasks());
+        for (Task task : saved) {
+            tasks.removeIf(cached -> cached.id.equals(task.id));
+            if (states.contains(task.getState())) {
+                int position = -Collections.binarySearch(tasks, task, RANK_ORDER) - 1;
+                if (position >= 0 && (entry.complete() || position < tasks.size())) {
+                    tasks.add(position, task);
+                }
+            }
+        }
+        return new Entry(List.copyOf(tasks), entry.complete());
+    }
+
+    private static int stripe(UUID ownerId) {
+        return (ownerId.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES;
+    }
+
+    private static List<Set<Task.State>> stateFilters() {
+        Task.State[] states = Task.State.values();
+        List<Set<Task.State>> filters = new ArrayList<>();
+        for (int mask = 1; mask < (1 << states.length); mask++) {
+            Set<Task.State> filter = EnumSet.noneOf(Task.State.class);
+            for (int i = 0; i < states.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    filter.add(states[i]);
+                }
+            }
+            filters.add(Set.copyOf(filter));
+        }
+        return List.copyOf(filters);
+    }
+}
@@ -0,0 +1,76 @@
+package org.alexgraham.tasks;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.qute.TemplateInstance;
+import io.smallrye.mutiny.Uni;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.function.Supplier;
+
+/**
+ * Times the work done for the Task endpoints, split by where the time goes:
+ * <ul>
+ *     <li>tasks.service.db: the round-trips (and transactions) of each {@link TaskService} operation</li>
+ *     <li>tasks.service.merge: the in-memory work on Task lists (e.g. paging cached lists, re-ranking, and
+ *     placing saved Tasks into the cached lists)</li>
+ *     <li>tasks.template.render: rendering each Qute template</li>
+ * </ul>
+ * The timers publish histograms, so percentiles can be computed from the scraped metrics (see /q/metrics).
+ */
+@ApplicationScoped
+public class TaskMetrics {
+
+    @Inject
+    MeterRegistry registry;
+
+    /**
+     * Times a database operation, from subscription until it completes (or fails).
+     *
+     * @param operation     The name of the operation (e.g. "queryPage").
+     * @param query         Creates the Uni which runs the operation.
+     * @return              The timed Uni.
+     */
+    public <T> Uni<T> timeDb(String operation, Supplier<Uni<T>> query) {
+        return Uni.createFrom().deferred(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return query.get().onTermination().invoke(() -> sample.stop(timer("tasks.service.db", "operation", operation)));
+        });
+    }
+
+    /**
+     * Times in-memory work on Task lists.
+     *
+     * @param operation     The name of the operation (e.g. "rerank").
+     * @param merge         The work.
+     * @return              The result of the work.
+     */
+    public <T> T timeMerge(String operation, Supplier<T> merge) {
+        return timer("tasks.service.merge", "operation", operation).record(merge);
+    }
+
+    /**
+     * Times in-memory work on Task lists, which has no result.
+     */
+    public void timeMerge(String operation, Runnable merge) {
+        timer("tasks.service.merge", "operation", operation).record(merge);
+    }
+
+    /**
+     * Renders a template, and times how long it took.
+     *
+     * @param instance  The template instance (e.g. from a @CheckedTemplate method).
+     * @return          The rendered template.
+     */
+    public String render(TemplateInstance instance) {
+        return timer("tasks.template.render", "template", instance.getTemplate().getId()).record(instance::render);
+    }
+
+    private Timer timer(String name, String tagKey, String tagValue) {
+        return Timer.builder(name)
+                .tag(tagKey, tagValue)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
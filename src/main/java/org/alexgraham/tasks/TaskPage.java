@@ -0,0 +1,18 @@
+package org.alexgraham.tasks;
+
+import java.util.List;
+
+/**
+ * A single page of an Owner's ranked Tasks, as returned by the keyset (cursor-based) list APIs.
+ *
+ * @param tasks         The Tasks on this page, in rank order.
+ * @param states        The {@link Task.State}s the page was filtered by (needed to request the next page).
+ * @param nextCursor    An opaque cursor which can be passed as the "after" parameter to fetch the next
+ *                      page. Null if this is the last page.
+ */
+public record TaskPage(List<Task> tasks, List<Task.State> states, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
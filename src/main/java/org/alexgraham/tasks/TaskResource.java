@@ -1,7 +1,10 @@
 package org.alexgraham.tasks;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.quarkus.qute.CheckedTemplate;
 import io.quarkus.qute.TemplateInstance;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import org.jboss.logging.Logger;
 import org.jboss.resteasy.reactive.RestCookie;
@@ -18,11 +21,22 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -35,9 +49,29 @@ import java.util.stream.Collectors;
 public class TaskResource {
     private static final Logger LOG = Logger.getLogger(TaskResource.class);
 
+    /**
+     * The Cache-Control of the views tagged by {@link #conditionalGet}: only the User's browser may keep
+     * them, and it has to revalidate them before each use.
+     */
+    private static final String LIST_CACHE_CONTROL = "private, no-cache";
+
+    /**
+     * The If-Match header for a version of a Task, which must be a strong ETag (see {@link #etag(Task)}).
+     */
+    private static final Pattern IF_MATCH_VERSION = Pattern.compile("\"(\\d{1,18})\"");
+
     @Inject
     TaskService service;
 
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    TaskEventBroadcaster broadcaster;
+
+    @Inject
+    TaskMetrics metrics;
+
     /**
      * Qute Templates for Task HTML views
      */
@@ -48,20 +82,45 @@ public class TaskResource {
          */
         public static native TemplateInstance completed(Task task);
 
+        /**
+         * Template for the details of a task (see resources/templates/TaskResource/details.html)
+         */
+        public static native TemplateInstance details(Task task);
+
+        /**
+         * Template for a change pushed to the user's views (see resources/templates/TaskResource/event.html)
+         */
+        public static native TemplateInstance event(TaskEvent event);
+
         /**
          * Template for a list of tasks (see resources/templates/TaskResource/list.html)
          */
-        public static native TemplateInstance list(List<Task> tasks);
+        public static native TemplateInstance list(TaskPage page);
+
+        /**
+         * Template for the next page of tasks in a list (see resources/templates/TaskResource/page.html)
+         */
+        public static native TemplateInstance page(TaskPage page);
 
         /**
          * Template for reopened tasks (see resources/templates/TaskResource/reopened.html)
          */
         public static native TemplateInstance reopened(Task task);
 
+        /**
+         * Template for the results of a search (see resources/templates/TaskResource/search.html)
+         */
+        public static native TemplateInstance search(List<TaskSearchResult> results, String query);
+
         /**
          * Template for a single task (see resources/templates/TaskResource/task.html)
          */
         public static native TemplateInstance task(Task task);
+
+        /**
+         * Template for many tasks which changed state at once (see resources/templates/TaskResource/transitioned.html)
+         */
+        public static native TemplateInstance transitioned(List<Task> tasks);
     }
 
     @ServerExceptionMapper
@@ -116,22 +175,120 @@ public class TaskResource {
     ) {
         return service.completeTask(taskId).map(result -> switch (result) {
             case Task.Result.Updated updated -> postResponse(isHxRequest, "/tasks",
-                    Response.ok(Template.completed(updated.task())));
+                    Response.ok(metrics.render(Template.completed(updated.task()))));
             case Task.Result.NotModified ignored -> Response.notModified().build();
         });
     }
 
+    /**
+     * This record is used for deserializing the input from the JSON bulk transition endpoint.
+     *
+     * @param ids       The ids of the Tasks to transition.
+     * @param state     The State to move the Tasks into.
+     */
+    private record TransitionParams(List<Long> ids, String state) {}
+
+    /**
+     * The result of a bulk transition for a single Task.
+     *
+     * @param id        The id of the Task.
+     * @param result    "Updated", or "NotModified" if the Task was already in the State.
+     * @param task      The updated Task; null if it was not modified.
+     */
+    private record TransitionResult(Long id, String result, Task task) {}
+
+    /**
+     * JSON API for moving many Tasks into a State at once (e.g. completing them), in one transaction.
+     *
+     * @param params    The Tasks, and the State to move them into.
+     * @param userId    The User who owns the Tasks.
+     * @return          200 with the result for each Task;
+     *                  404 if the User does not own all the Tasks (then none are changed).
+     */
+    @POST
+    @Path("/transition")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<List<TransitionResult>> transition(
+            TransitionParams params,
+            @RestHeader("X-User-Id") UUID userId
+    ) {
+        return service.transitionTasks(userId, params.ids(), Task.State.parse(params.state()))
+                .map(results -> results.entrySet().stream()
+                        .map(entry -> switch (entry.getValue()) {
+                            case Task.Result.Updated updated -> new TransitionResult(entry.getKey(), "Updated", updated.task());
+                            case Task.Result.NotModified ignored -> new TransitionResult(entry.getKey(), "NotModified", null);
+                        })
+                        .toList());
+    }
+
+    /**
+     * The HTML endpoint for moving many Tasks into a State at once. The response moves each updated Task
+     * into its new list, in a single response.
+     *
+     * @param ids           The ids of the Tasks to transition.
+     * @param state         The State to move the Tasks into.
+     * @param userId        The User who owns the Tasks.
+     * @param isHxRequest   Whether the response is initiated via HTMX (else, it will return a standard 302 resp).
+     * @return              200 with the updated Tasks;
+     *                      304 if none of the Tasks were modified.
+     */
+    @POST
+    @Path("/transition")
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    @Produces(MediaType.TEXT_HTML)
+    public Uni<Response> transition(
+            @RestForm("id") List<Long> ids,
+            @RestForm String state,
+            @RestCookie UUID userId,
+            @RestHeader("HX-Request") boolean isHxRequest
+    ) {
+        return service.transitionTasks(userId, ids, Task.State.parse(state)).map(results -> {
+            List<Task> updated = results.values().stream()
+                    .filter(result -> result instanceof Task.Result.Updated)
+                    .map(result -> ((Task.Result.Updated) result).task())
+                    .toList();
+            if (updated.isEmpty()) {
+                return Response.notModified().build();
+            }
+            return postResponse(isHxRequest, "/tasks", Response.ok(metrics.render(Template.transitioned(updated))));
+        });
+    }
+
     /**
      * JSON Endpoint for getting a single Task.
      * @param id    The Task to get.
-     * @return      A Task.
+     * @return      A Task, with its version as its ETag (which can be sent back as If-Match, when updating it).
      */
     @GET
     @Path("/{id}")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Uni<Task> getById(Long id) {
-        return Task.findById(id);
+    public Uni<Response> getById(Long id) {
+        return service.getTask(id).map(task -> task == null
+                ? Response.noContent().build()
+                : Response.ok(task).tag(etag(task)).build());
+    }
+
+    /**
+     * The HTML endpoint for the details of a Task (e.g. its description). Lists only render summaries of the
+     * Tasks, so the details are loaded when the user opens them.
+     *
+     * @param taskId    The Task to render the details of.
+     * @param userId    The user ID (currently, this is a silly proxy until I have auth/sessions).
+     * @return          200 with the rendered details;
+     *                  404 if the Task does not exist.
+     */
+    @GET
+    @Path("/{id}/details")
+    @Produces(MediaType.TEXT_HTML)
+    public Uni<String> details(
+            @PathParam("id") Long taskId,
+            @RestCookie String userId
+    ) {
+        return service.getTask(taskId)
+                .onItem().ifNull().failWith(TaskNotFoundException::new)
+                .map(task -> metrics.render(Template.details(task)));
     }
 
     /**
@@ -153,6 +310,30 @@ public class TaskResource {
                         .build());
     }
 
+    /**
+     * This record is used for deserializing the input from the JSON batch create endpoint.
+     *
+     * @param titles    The titles of the Tasks to create, in the order they should be ranked.
+     */
+    private record BatchCreateParams(List<String> titles) {}
+
+    /**
+     * The JSON Endpoint for creating a batch of Tasks at once (e.g. when importing a list).
+     *
+     * @param params    The titles of the Tasks to create.
+     * @param userId    The User who is creating the Tasks.
+     * @return          201 with the created Tasks;
+     *                  400 if the User does not exist, or the batch is too big.
+     */
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<Response> createBatch(BatchCreateParams params, @RestHeader("X-User-Id") String userId) {
+        return service.createTasks(params.titles(), UUID.fromString(userId))
+                .map(newTasks -> Response.status(Response.Status.CREATED).entity(newTasks).build());
+    }
+
     /**
      * The HTML endpoint for creating a task via a front-end from.
      *
@@ -170,7 +351,7 @@ public class TaskResource {
             @RestHeader("HX-Request") boolean isHxRequest
     ) {
         return service.createTask(title, UUID.fromString(userId))
-                .map(newTask -> postResponse(isHxRequest, "/tasks", Response.ok(Template.task(newTask))
+                .map(newTask -> postResponse(isHxRequest, "/tasks", Response.ok(metrics.render(Template.task(newTask)))
                         .header("HX-Trigger", "clear-add-task")));
     }
 
@@ -179,19 +360,40 @@ public class TaskResource {
      * <p>
      * By default, only Tasks with an "Open" {@link Task.State} will be returned. To find Tasks in
      * other states, it is possible to filter using the state query parameters.
+     * <p>
+     * The results are paginated. If there are more Tasks, the response has a Link header
+     * with rel="next", which points at the next page.
      *
      * @param userId    The User to find tasks for.
      * @param state     An optional list of {@link Task.State}s as a filter to the results.
-     * @return          A list of Tasks belonging to the User.
+     * @param after     An optional cursor (from the previous page's Link header) to start the page after.
+     * @param limit     An optional max number of Tasks to return in the page.
+     * @param uriInfo   The request URI, used to build the link to the next page.
+     * @param request   The request, whose If-None-Match header is checked against the list's ETag.
+     * @return          200 with a page of Tasks belonging to the User;
+     *                  304 if the User's Tasks have not changed since the ETag in If-None-Match.
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)   // don't use Consume here; otherwise, the "Accept */*" will favor JSON
-    public Uni<List<Task>> list(
+    public Uni<Response> list(
             @RestHeader("X-User-Id") String userId,
-            @QueryParam("state") final List<String> state
+            @QueryParam("state") final List<String> state,
+            @QueryParam("after") String after,
+            @QueryParam("limit") Integer limit,
+            @Context UriInfo uriInfo,
+            @Context Request request
     ) {
         List<Task.State> states = state.stream().map(Task.State::parse).toList();
-        return service.queryByOwner(userId, states);
+        return conditionalGet(request, service.listVersion(userId), "json", () -> service.queryPageByOwner(userId, states, after, limit)
+                .map(page -> {
+                    Response.ResponseBuilder responseBuilder = Response.ok(page.tasks());
+                    if (page.hasNext()) {
+                        responseBuilder.link(uriInfo.getRequestUriBuilder()
+                                .replaceQueryParam("after", page.nextCursor())
+                                .build(), "next");
+                    }
+                    return responseBuilder;
+                }));
     }
 
     /**
@@ -199,22 +401,197 @@ public class TaskResource {
      * <p>
      * By default, only Tasks with an "Open" {@link Task.State} will be returned. To find Tasks in
      * other states, it is possible to filter using the state query parameters.
+     * <p>
+     * The results are paginated. The first page is rendered as a full (sortable) list; requests with
+     * a cursor render just the next page of tasks, which the list appends as the user scrolls.
      *
      * @param userId        The User to find tasks for.
      * @param state         An optional list of {@link Task.State}s as a filter to the results.
+     * @param after         An optional cursor to start the page after.
+     * @param limit         An optional max number of Tasks to render in the page.
      * @param isHxRequest   Whether the request was made via HTMX.
-     * @return              Rendered HTML template with the list of tasks.
+     * @param request       The request, whose If-None-Match header is checked against the list's ETag.
+     * @return              200 with the rendered list of tasks;
+     *                      304 if the User's Tasks have not changed since the ETag in If-None-Match.
      */
     @GET
     @Consumes(MediaType.TEXT_HTML)
     @Produces(MediaType.TEXT_HTML)
-    public Uni<TemplateInstance> list(
+    public Uni<Response> list(
             @RestCookie String userId,
             @QueryParam("state") final List<String> state,
-            @RestHeader("HX-Request") Boolean isHxRequest
+            @QueryParam("after") String after,
+            @QueryParam("limit") Integer limit,
+            @RestHeader("HX-Request") Boolean isHxRequest,
+            @Context Request request
     ) {
         List<Task.State> taskStates = state.stream().map(Task.State::parse).toList();
-        return service.queryByOwner(userId, taskStates).onItem().transform(Template::list);
+        return conditionalGet(request, service.listVersion(userId), "html", () -> service.queryPageByOwner(userId, taskStates, after, limit)
+                .onItem().transform(page -> Response.ok(metrics.render(after == null ? Template.list(page) : Template.page(page)))));
+    }
+
+    /**
+     * The JSON API for searching the titles and descriptions of the User's Tasks (in all states).
+     *
+     * @param userId    The User to search the tasks of.
+     * @param query     The words to search for (e.g. "milk -eggs", or a "quoted phrase").
+     * @param limit     An optional max number of results to return.
+     * @return          200 with the matching Tasks, best match first, with the matches highlighted;
+     *                  400 if the query is blank, or the limit is less than 1.
+     */
+    @GET
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<List<TaskSearchResult>> search(
+            @RestHeader("X-User-Id") String userId,
+            @QueryParam("q") String query,
+            @QueryParam("limit") Integer limit
+    ) {
+        return service.search(userId, query, limit);
+    }
+
+    /**
+     * The HTML API for the active search on the Tasks page: the results replace the list of open Tasks as
+     * the user types, and the list comes back once the search is cleared.
+     *
+     * @param userId    The User to search the tasks of.
+     * @param query     The words to search for.
+     * @return          Rendered HTML with the matching tasks; or the list of open tasks, if the query is blank.
+     */
+    @GET
+    @Path("/search")
+    @Consumes(MediaType.TEXT_HTML)
+    @Produces(MediaType.TEXT_HTML)
+    public Uni<String> search(
+            @RestCookie String userId,
+            @QueryParam("q") String query
+    ) {
+        if (query == null || query.isBlank()) {
+            return service.queryPageByOwner(userId, List.of(), null, null)
+                    .map(page -> metrics.render(Template.list(page)));
+        }
+        return service.search(userId, query, null)
+                .map(results -> metrics.render(Template.search(results, query)));
+    }
+
+    /**
+     * Endpoint for exporting all the User's Tasks as newline-delimited JSON (one Task per line).
+     * <p>
+     * The Tasks are streamed as they are read from the database, so even very long lists are exported
+     * in constant memory.
+     *
+     * @param userId    The User to export tasks for.
+     * @param state     An optional list of {@link Task.State}s as a filter; by default, Tasks in all states are exported.
+     * @return          The stream of Tasks, in rank order.
+     */
+    @GET
+    @Path("/export")
+    @Produces("application/x-ndjson")
+    public Multi<String> exportNdjson(
+            @RestHeader("X-User-Id") String userId,
+            @QueryParam("state") final List<String> state
+    ) {
+        List<Task.State> states = state.stream().map(Task.State::parse).toList();
+        return service.streamByOwner(userId, states).map(task -> toJson(task) + "\n");
+    }
+
+    /**
+     * Endpoint for exporting all the User's Tasks as CSV (with a header row), streamed in the same way
+     * as the newline-delimited JSON export.
+     *
+     * @param userId    The User to export tasks for.
+     * @param state     An optional list of {@link Task.State}s as a filter; by default, Tasks in all states are exported.
+     * @return          The stream of CSV rows, in rank order.
+     */
+    @GET
+    @Path("/export")
+    @Produces("text/csv")
+    public Multi<String> exportCsv(
+            @RestHeader("X-User-Id") String userId,
+            @QueryParam("state") final List<String> state
+    ) {
+        List<Task.State> states = state.stream().map(Task.State::parse).toList();
+        return Multi.createBy().concatenating().streams(
+                Multi.createFrom().item("id,title,state,description\r\n"),
+                service.streamByOwner(userId, states).map(task -> String.join(",",
+                        String.valueOf(task.id),
+                        csvField(task.getTitle()),
+                        task.getState().name(),
+                        csvField(task.getDescription())) + "\r\n"));
+    }
+
+    /**
+     * Server-Sent Events endpoint, which pushes the changes to the User's Tasks (e.g. made in another tab)
+     * as they happen. Each event is named by its {@link TaskEvent.Type} (e.g. "completed"), and its data is
+     * the rendered HTML which applies the change (see resources/templates/TaskResource/event.html).
+     *
+     * @param userId    The User whose Task changes to push.
+     * @param sse       Builds the events.
+     * @return          The stream of events, until the client disconnects.
+     */
+    @GET
+    @Path("/events")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public Multi<OutboundSseEvent> events(@RestCookie UUID userId, @Context Sse sse) {
+        return broadcaster.subscribe(userId).map(event -> sse.newEventBuilder()
+                .name(event.type().eventName())
+                .data(metrics.render(Template.event(event)))
+                .build());
+    }
+
+    /**
+     * This record is used for deserializing the input from the JSON move endpoint.
+     *
+     * @param previousId    The id of the Task which should come directly before the moved Task (null to move it first).
+     * @param nextId        The id of the Task which should come directly after the moved Task (null to move it last).
+     */
+    private record MoveParams(Long previousId, Long nextId) {}
+
+    /**
+     * The JSON endpoint for moving a Task to a new position in the user's ranking. Only the Task's new
+     * neighbours are sent, so the cost of a move doesn't depend on the length of the list.
+     *
+     * @param params    The ids of the Task's new neighbours.
+     * @param taskId    The id of the Task to move.
+     * @param userId    The user's id.
+     * @return          The moved Task.
+     */
+    @POST
+    @Path("/{id}/move")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<Task> move(
+            MoveParams params,
+            @PathParam("id") Long taskId,
+            @RestHeader("X-User-Id") UUID userId
+    ) {
+        return service.moveTask(userId, taskId, params.previousId(), params.nextId());
+    }
+
+    /**
+     * The HTML endpoint for moving a Task to a new position in the user's ranking (e.g. after it is
+     * dragged in the sortable list).
+     *
+     * @param taskId        The id of the Task to move.
+     * @param previousId    (Optional) The id of the Task which should come directly before the moved Task.
+     * @param nextId        (Optional) The id of the Task which should come directly after the moved Task.
+     * @param userId        The user's id.
+     * @param isHxRequest   Whether the response is initiated via HTMX (else, it will return a standard 302 resp).
+     * @return              204 if the Task was moved.
+     */
+    @POST
+    @Path("/{id}/move")
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    @Produces(MediaType.TEXT_HTML)
+    public Uni<Response> move(
+            @PathParam("id") Long taskId,
+            @RestForm Long previousId,
+            @RestForm Long nextId,
+            @RestCookie UUID userId,
+            @RestHeader("HX-Request") boolean isHxRequest
+    ) {
+        return service.moveTask(userId, taskId, previousId, nextId)
+                .map(ignored -> postResponse(isHxRequest, "/tasks", Response.noContent()));
     }
 
     /**
@@ -259,7 +636,7 @@ public class TaskResource {
     ) {
         return service.reopenTask(taskId).map(result -> switch (result) {
             case Task.Result.Updated updated -> postResponse(isHxRequest, "/tasks",
-                    Response.ok(Template.reopened(updated.task())));
+                    Response.ok(metrics.render(Template.reopened(updated.task()))));
             case Task.Result.NotModified ignored -> Response.notModified().build();
         });
     }
@@ -272,7 +649,8 @@ public class TaskResource {
     private record RerankParams(List<Long> rankings) {}
 
     /**
-     * The JSON endpoint for re-ranking the user's Tasks.
+     * The JSON endpoint for re-ranking the user's Tasks. The ranking is saved in the background, once the
+     * user stops re-ranking for a moment (see {@link TaskService#submitTaskRankings(UUID, List)}).
      *
      * @param params    The params containing re-ranked data.
      * @param userId    The user's id.
@@ -287,8 +665,8 @@ public class TaskResource {
             @RestHeader("X-User-Id") UUID userId
     ) {
         LOG.info("rankings: " + params.rankings.stream().map(Object::toString).collect(Collectors.joining(", ")));
-        return service.saveTaskRankings(userId, params.rankings())
-                .map(ignored -> Response.ok().build());
+        service.submitTaskRankings(userId, params.rankings());
+        return Uni.createFrom().item(Response.ok().build());
     }
 
     /**
@@ -297,7 +675,7 @@ public class TaskResource {
      * @param ranks         A list of Task ids representing the order the Tasks should appear in.
      * @param userId        The user's id.
      * @param isHxRequest   Whether the response is initiated via HTMX (else, it will return a standard 302 resp).
-     * @return              200 if the rankings were successfully saved.
+     * @return              204 once the rankings are submitted (they are saved in the background).
      */
     @POST
     @Path("/rerank")
@@ -309,8 +687,8 @@ public class TaskResource {
             @RestHeader("HX-Request") boolean isHxRequest
     ) {
         LOG.info("item: " + ranks.stream().map(Object::toString).collect(Collectors.joining(", ")));
-        return service.saveTaskRankings(userId, ranks)
-                .map(ignored -> postResponse(isHxRequest, "/tasks", Response.noContent()));
+        service.submitTaskRankings(userId, ranks);
+        return Uni.createFrom().item(postResponse(isHxRequest, "/tasks", Response.noContent()));
     }
 
     /**
@@ -319,18 +697,29 @@ public class TaskResource {
      * @param task              A Task object containing attributes to update. Any null attributes will be ignored.
      * @param taskId            The ID of the task to update (specified on the path).
      * @param ignored_userId    The user ID (currently, this is a silly proxy until I have auth/sessions).
-     * @return                  A Response containing the updated Task.
+     * @param ifMatch           (Optional) The ETag of the version of the Task which the client updated. If
+     *                          not provided, the current version is updated.
+     * @return                  200 with the updated Task;
+     *                          400 if the If-Match header is malformed;
+     *                          404 if the Task does not exist;
+     *                          412 with the current Task, if it has changed since the version in If-Match.
      */
     @POST
     @Path("/{id}")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Uni<Task> update(
+    public Uni<Response> update(
             Task task,
             @PathParam("id") Long taskId,
-            @RestHeader("X-User-Id") UUID ignored_userId
+            @RestHeader("X-User-Id") UUID ignored_userId,
+            @RestHeader("If-Match") String ifMatch
     ) {
-        return service.update(taskId, task);
+        return service.update(taskId, task, ifMatchVersion(ifMatch))
+                .map(updated -> Response.ok(updated).tag(etag(updated)).build())
+                .onFailure(TaskConflictException.class).recoverWithItem(e -> {
+                    Task current = ((TaskConflictException) e).getCurrent();
+                    return Response.status(Response.Status.PRECONDITION_FAILED).entity(current).tag(etag(current)).build();
+                });
     }
 
     /**
@@ -341,9 +730,12 @@ public class TaskResource {
      * @param description       (Optional) The Task description. If not provided, it is ignored.
      * @param userId            The user ID (currently, this is a silly proxy until I have auth/sessions).
      * @param isHxRequest       Whether the incoming request is via HTMX (else, it will return a standard 302 resp).
+     * @param version           (Optional) The version of the Task which the form was rendered from. If not
+     *                          provided, the current version is updated.
      * @param isViewingDetails  This header is passed to the template as a view control, whether the Task should
      *                          be rendered with its detail pane open. This allows the view to control this scenario.
-     * @return                  A Response with the given Task template.
+     * @return                  A Response with the given Task template;
+     *                          409 with the current Task's template, if it has changed since the form's version.
      */
     @POST
     @Path("/{id}")
@@ -353,14 +745,95 @@ public class TaskResource {
             @PathParam("id") Long taskId,
             @RestForm String title,
             @RestForm String description,
+            @RestForm Long version,
             @RestCookie String userId,
             @RestHeader("HX-Request") boolean isHxRequest,
             @RestHeader("X-Override-IsViewingDetails") boolean isViewingDetails
     ) {
         LOG.info(String.format("Title: %s; Description: %s, isViewing: %b", title, description, isViewingDetails));
-        return service.update(taskId, new Task().setTitle(title).setDescription(description))
+        return service.update(taskId, new Task().setTitle(title).setDescription(description), version)
                 .map(updatedTask -> postResponse(isHxRequest, "/tasks",
-                        Response.ok(Template.task(updatedTask).data("isViewingDetails", isViewingDetails))));
+                        Response.ok(metrics.render(Template.task(updatedTask).data("isViewingDetails", isViewingDetails)))))
+                // the Task was changed elsewhere: show the user the current Task, instead of saving over it
+                .onFailure(TaskConflictException.class).recoverWithItem(e -> Response.status(Response.Status.CONFLICT)
+                        .entity(metrics.render(Template.task(((TaskConflictException) e).getCurrent())
+                                .data("isViewingDetails", isViewingDetails)))
+                        .build());
+    }
+
+    private String toJson(Task task) {
+        try {
+            return mapper.writeValueAsString(task);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Quotes a CSV field (as per RFC 4180), if it contains a comma, quote or line break.
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /**
+     * Answers a GET of a view of the Owner's Tasks (e.g. a list) conditionally. The view is tagged with a strong
+     * ETag made from the version of the Owner's Tasks; if the request's If-None-Match has that ETag, the client's
+     * copy is still current, and the response is a 304 (without loading the Tasks or rendering the view).
+     * <p>
+     * Responses are marked "no-cache", so that browsers (and HTMX requests, which go through the browser's
+     * cache) revalidate their copy each time they use it, rather than guessing whether it is fresh.
+     *
+     * @param request   The request, with the client's If-None-Match header (if any).
+     * @param version   The version of the Owner's Tasks, read (with {@link TaskService#listVersion(String)})
+     *                  before the view is loaded.
+     * @param variant   The representation of the view (e.g. "json", or "html"), which is part of the ETag, as
+     *                  the representations of a URL must have different tags.
+     * @param view      Loads the view.
+     * @return          The Response.
+     */
+    static Uni<Response> conditionalGet(Request request, String version, String variant,
+                                        Supplier<Uni<Response.ResponseBuilder>> view) {
+        EntityTag etag = new EntityTag(version + "-" + variant);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        Uni<Response.ResponseBuilder> response = notModified != null
+                ? Uni.createFrom().item(notModified)
+                : view.get();
+        return response.map(builder -> builder
+                .tag(etag)
+                .header(HttpHeaders.CACHE_CONTROL, LIST_CACHE_CONTROL)
+                .build());
+    }
+
+    /**
+     * @return  The ETag of a version of a Task.
+     */
+    private static EntityTag etag(Task task) {
+        return new EntityTag(Long.toString(task.getVersion()));
+    }
+
+    /**
+     * Parses the version of a Task from an If-Match header (e.g. "3", as sent by {@link #etag(Task)}).
+     *
+     * @param ifMatch   The header; may be null.
+     * @throws          IllegalArgumentException if the header is not a single version of a Task.
+     * @return          The version; or null if there is no header, or it is "*" (which matches any version).
+     */
+    static Long ifMatchVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        Matcher matcher = IF_MATCH_VERSION.matcher(ifMatch.strip());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("If-Match must be the ETag of a version of the Task");
+        }
+        return Long.parseLong(matcher.group(1));
     }
 
     /**
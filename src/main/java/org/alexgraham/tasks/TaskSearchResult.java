@@ -0,0 +1,57 @@
+package org.alexgraham.tasks;
+
+/**
+ * A Task which matched a search, with the matching words highlighted.
+ * <p>
+ * The highlights are HTML: the Task's text is escaped, and each match is wrapped in a &lt;mark&gt; element.
+ *
+ * @param task                  The matching Task.
+ * @param titleHighlight        The Task's title, with the matches highlighted.
+ * @param descriptionHighlight  The fragments of the Task's description around the matches (or its start, if
+ *                              only the title matched); null if the Task has no description.
+ * @param score                 How well the Task matched; the results are ordered by it (best first).
+ */
+public record TaskSearchResult(Task task, String titleHighlight, String descriptionHighlight, double score) {
+
+    // DEV NOTE: Postgres marks the matches with these private-use characters, rather than with the <mark>
+    // tags themselves, so that the rest of the text can be escaped before the tags are put in. Otherwise,
+    // any HTML in a Task's title would be rendered as-is.
+    /**
+     * Marks the start of a match in the text returned from the database (see ts_headline in {@link TaskService}).
+     */
+    static final String MATCH_START = "\uE000";
+
+    /**
+     * Marks the end of a match in the text returned from the database.
+     */
+    static final String MATCH_END = "\uE001";
+
+    /**
+     * Creates a result from the text returned by the database, with the matches marked with
+     * {@link #MATCH_START} and {@link #MATCH_END}.
+     */
+    static TaskSearchResult of(Task task, String titleHeadline, String descriptionHeadline, double score) {
+        return new TaskSearchResult(task, toHtml(titleHeadline), toHtml(descriptionHeadline), score);
+    }
+
+    private static String toHtml(String headline) {
+        if (headline == null) {
+            return null;
+        }
+        StringBuilder html = new StringBuilder(headline.length() + 32);
+        for (int i = 0; i < headline.length(); i++) {
+            char c = headline.charAt(i);
+            switch (c) {
+                case '&' -> html.append("&amp;");
+                case '<' -> html.append("&lt;");
+                case '>' -> html.append("&gt;");
+                case '"' -> html.append("&quot;");
+                case '\'' -> html.append("&#39;");
+                case '\uE000' -> html.append("<mark>");
+                case '\uE001' -> html.append("</mark>");
+                default -> html.append(c);
+            }
+        }
+        return html.toString();
+    }
+}
@@ -1,18 +1,47 @@
 package org.alexgraham.tasks;
 
-import io.quarkus.hibernate.reactive.panache.common.runtime.ReactiveTransactional;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.hibernate.reactive.panache.PanacheQuery;
 import io.quarkus.panache.common.Sort;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.vertx.core.runtime.context.VertxContextSafetyToggle;
+import io.smallrye.common.vertx.VertxContext;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import org.alexgraham.cache.EntityCache;
+import org.alexgraham.cache.SingleFlight;
 import org.alexgraham.users.User;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.StaleStateException;
+import org.jboss.logging.Logger;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.persistence.OptimisticLockException;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -21,107 +50,997 @@ public class TaskService {
 
     private static final List<Task.State> DEFAULT_STATES = List.of(Task.State.Open);
 
-    @ReactiveTransactional
+    /**
+     * The number of Tasks in a page, when the caller does not specify a limit.
+     */
+    static final int DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * The largest page a caller may request; larger limits are capped to this size.
+     */
+    static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * The number of Tasks fetched from the database at a time, when streaming an Owner's Tasks.
+     */
+    static final int STREAM_CHUNK_SIZE = 500;
+
+    /**
+     * The most Tasks which can be created in a single batch.
+     */
+    static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * The number of times a change is retried, when the Task changes while it is being saved.
+     */
+    static final int MAX_SAVE_RETRIES = 3;
+
+    /**
+     * The number of search results, when the caller does not specify a limit.
+     */
+    static final int DEFAULT_SEARCH_SIZE = 20;
+
+    /**
+     * The most search results a caller may request; larger limits are capped to this size.
+     */
+    static final int MAX_SEARCH_SIZE = 100;
+
+    // DEV NOTE: ts_headline is costly (it re-parses the text), so the matches are ranked and limited first,
+    // and only the Tasks which are returned are highlighted. The query is websearch syntax (e.g. "milk -eggs",
+    // or a "quoted phrase"), which never fails to parse, whatever the user types.
+    /**
+     * Finds the Owner's best matches for a query, using the search column and index (see V3__search_tasks.sql).
+     */
+    private static final String SEARCH_QUERY = """
+            SELECT t.*,
+                ts_headline('english', t.title, t.query, :titleOptions) AS title_highlight,
+                ts_headline('english', t.description, t.query, :descriptionOptions) AS description_highlight
+            FROM (
+                SELECT task.*, query, ts_rank_cd(search, query)::float8 AS score
+                FROM task, websearch_to_tsquery('english', :query) query
+                WHERE ownerid = :ownerId AND search @@ query
+                ORDER BY score DESC, id DESC
+                LIMIT :limit
+            ) t
+            ORDER BY t.score DESC, t.id DESC""";
+
+    private static final String MATCH_MARKERS =
+            "StartSel=" + TaskSearchResult.MATCH_START + ", StopSel=" + TaskSearchResult.MATCH_END;
+
+    /**
+     * Tasks are sorted by their rank key; the id breaks any ties (e.g. from concurrently created Tasks).
+     */
+    private static final Sort RANK_ORDER = Sort.by("rank").and("id");
+
+    // DEV NOTE: A list only shows the title and the state of each Task, so the list queries leave out the
+    // description (up to 2KB per row); it is loaded when the user opens a Task's details. This keeps the rows
+    // read from the database, the cached lists (see TaskListCache) and the rendered lists small.
+    /**
+     * The start of a list query, which selects summaries of the Tasks (see {@link Task#summary()}). The
+     * conditions of the query are appended to it.
+     */
+    private static final String LIST_PROJECTION =
+            "SELECT new org.alexgraham.tasks.Task(id, title, state, rank, ownerId, version) FROM Task WHERE ";
+
+    private static final Logger LOG = Logger.getLogger(TaskService.class);
+
+    /**
+     * The Owners whose rank keys have grown too long, and should be re-balanced in the background.
+     */
+    private final Set<UUID> ownersToRebalance = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A re-ranking which has been submitted, but not saved yet.
+     *
+     * @param rankings      The ranked task ids.
+     * @param submittedAt   When the re-ranking was submitted (from System::nanoTime).
+     */
+    private record PendingRanking(List<Long> rankings, long submittedAt) {}
+
+    /**
+     * The latest re-ranking submitted by each Owner, which is saved once the Owner stops re-ranking for a moment.
+     */
+    private final Map<UUID, PendingRanking> pendingRankings = new ConcurrentHashMap<>();
+
+    /**
+     * A query of the Tasks in one of an Owner's lists. Identical queries which run at the same time are
+     * coalesced into one (see {@link #listQueries}).
+     *
+     * @param ownerId   The Owner of the Tasks.
+     * @param states    The States of the Tasks in the list.
+     * @param after     The position in the list to start after; null to start from the first Task.
+     * @param limit     The max number of Tasks to read.
+     * @param epoch     The Owner's epoch in the list cache when the query started (see {@link TaskListCache#epoch(UUID)}),
+     *                  so that a query which starts after a write doesn't share the result of one from before it.
+     */
+    private record ListQuery(UUID ownerId, Set<Task.State> states, Cursor after, int limit, long epoch) {}
+
+    /**
+     * The list queries which are running. A burst of identical list requests (e.g. from polling, several open tabs,
+     * or retries) shares a single query.
+     */
+    private final SingleFlight<ListQuery, List<Task>> listQueries = new SingleFlight<>();
+
+    /**
+     * How long an Owner has to stop re-ranking their Tasks, before their latest re-ranking is saved.
+     */
+    @ConfigProperty(name = "tasks.rank.coalesce-window", defaultValue = "500ms")
+    Duration coalesceWindow;
+
+    @Inject
+    Vertx vertx;
+
+    // DEV NOTE: The write methods use Panache.withTransaction() (see transaction()) rather than @ReactiveTransactional,
+    // so that the caches are only updated once the transaction has committed.
+    @Inject
+    TaskListCache listCache;
+
+    @Inject
+    EntityCache<Long, Task> taskCache;
+
+    @Inject
+    EntityCache<UUID, User> userCache;
+
+    @Inject
+    TaskEventBroadcaster events;
+
+    @Inject
+    TaskVersions versions;
+
+    @Inject
+    TaskFragments fragments;
+
+    @Inject
+    TaskMetrics metrics;
+
+    @Inject
+    MeterRegistry registry;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("tasks.rank.pending", pendingRankings, Map::size)
+                .description("The number of Owners with a re-ranking waiting to be saved")
+                .register(registry);
+        Gauge.builder("tasks.rank.rebalance.pending", ownersToRebalance, Set::size)
+                .description("The number of Owners waiting for their rank keys to be re-balanced")
+                .register(registry);
+        listQueries.bindTo(registry, "tasks.lists.queries");
+    }
+
     public Uni<Task.Result> completeTask(Long taskId) {
-        return Task.<Task>findById(taskId)
-                .onItem().ifNull().failWith(new TaskNotFoundException())
-                .flatMap(task -> {
-                    if (task.isComplete()) {
-                        return Uni.createFrom().item(Task.Result.NotModified::new);
-                    } else {
-                        return task.complete().<Task>persist().map(Task.Result.Updated::new);
+        return transition(taskId, Task.State.Complete);
+    }
+
+    /**
+     * Moves many of the Owner's Tasks into a State at once (e.g. completes them), with a single set-based
+     * UPDATE in a single transaction. Tasks already in the State are not modified.
+     *
+     * @param ownerId   The Owner of the Tasks.
+     * @param taskIds   The ids of the Tasks.
+     * @param state     The State to move the Tasks into.
+     * @throws          TaskNotFoundException if the Owner does not have all the Tasks (then none are changed).
+     * @return          The Result for each Task id, in the order of the given ids.
+     */
+    public Uni<Map<Long, Task.Result>> transitionTasks(UUID ownerId, List<Long> taskIds, Task.State state) {
+        List<Long> ids = List.copyOf(new LinkedHashSet<>(taskIds));
+        if (ids.isEmpty()) {
+            return Uni.createFrom().item(Map.of());
+        }
+        return transaction("transitionTasks", () -> Panache.getSession().flatMap(session -> session
+                        .createNativeQuery("UPDATE task SET state = :state, version = version + 1"
+                                + " WHERE ownerid = :ownerId AND id IN (:ids) AND state <> :state RETURNING *", Task.class)
+                        .setParameter("state", state.name())
+                        .setParameter("ownerId", ownerId)
+                        .setParameter("ids", ids)
+                        .getResultList())
+                .flatMap(updated -> {
+                    if (updated.size() == ids.size()) {
+                        return Uni.createFrom().item(updated);
+                    }
+                    // Some Tasks were not changed: make sure they are the Owner's, or roll back the whole batch
+                    return Task.count("owner.id = ?1 AND id in (?2)", ownerId, ids).map(count -> {
+                        if (count < ids.size()) {
+                            throw new TaskNotFoundException();
+                        }
+                        return updated;
+                    });
+                }))
+                .invoke(updated -> {
+                    cacheTasks(ownerId, updated);
+                    updated.forEach(task -> events.publish(new TaskEvent(transitionEvent(state), task)));
+                })
+                .map(updated -> {
+                    Map<Long, Task> updatedById = updated.stream().collect(Collectors.toMap(task -> task.id, task -> task));
+                    Map<Long, Task.Result> results = new LinkedHashMap<>();
+                    for (Long id : ids) {
+                        Task task = updatedById.get(id);
+                        results.put(id, task == null ? new Task.Result.NotModified() : new Task.Result.Updated(task));
                     }
+                    return results;
                 });
     }
 
-    @ReactiveTransactional
     public Uni<Task> createTask(String title, UUID ownerId) {
         // We first find the owner to verify they actually exist, before creating the task
-        return User.<User>findById(ownerId).flatMap(user -> new Task(title, user).persist());
+        return transaction("createTask", () -> userCache.get(ownerId, () -> User.findById(ownerId)).flatMap(user -> lastRank(ownerId)
+                .flatMap(lastRank -> new Task(title, user).setRank(rankKey(ownerId, RankKeys.after(lastRank))).<Task>persist())))
+                .invoke(task -> {
+                    cacheTask(task);
+                    events.publish(new TaskEvent(TaskEvent.Type.Created, task));
+                });
     }
 
     /**
-     * Get all Tasks associated with the given owner.
-     * <p>
-     * By default, only Open Tasks are included in the results. Other states can be viewed
-     * with the
+     * Creates a batch of Tasks, which are appended (in order) to the end of the Owner's list.
      * <p>
-     * The Tasks have the following sorting rules:
-     * <ol>
-     *     <li>Open tasks that have been ranked by the user are ordered by that ranking</li>
-     *     <li>Any Tasks not ranked by the user (e.g. new Tasks) come next</li>
-     * </ol>
+     * The Owner is checked once for the whole batch, the ids come from the pooled Task sequence,
+     * and the inserts are sent in JDBC-style batches (see quarkus.hibernate-orm.jdbc.statement-batch-size).
      *
-     * The TaskRanking may not encompass the full set of tasks the User has created. Any
-     * tasks not in the TaskRanking will be appended to the end.
+     * @param titles    The titles of the Tasks to create.
+     * @param ownerId   The Owner of the Tasks.
+     * @throws          IllegalArgumentException if the Owner does not exist, or there are more
+     *                  than {@link #MAX_BATCH_SIZE} titles.
+     * @return          The created Tasks.
+     */
+    public Uni<List<Task>> createTasks(List<String> titles, UUID ownerId) {
+        if (titles.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("at most " + MAX_BATCH_SIZE + " Tasks can be created at once");
+        }
+        if (titles.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        return transaction("createTasks", () -> userCache.get(ownerId, () -> User.findById(ownerId))
+                        .onItem().ifNull().failWith(() -> new IllegalArgumentException("User " + ownerId + " not found"))
+                        .flatMap(user -> lastRank(ownerId).flatMap(lastRank -> {
+                            List<Task> tasks = new ArrayList<>(titles.size());
+                            String rank = lastRank;
+                            for (String title : titles) {
+                                rank = RankKeys.after(rank);
+                                tasks.add(new Task(title, user).setRank(rankKey(ownerId, rank)));
+                            }
+                            return Task.persist(tasks).replaceWith(tasks);
+                        })))
+                .invoke(tasks -> {
+                    cacheTasks(ownerId, tasks);
+                    tasks.forEach(task -> events.publish(new TaskEvent(TaskEvent.Type.Created, task)));
+                });
+    }
+
+    /**
+     * Gets a single Task by its id, from the entity cache if it is cached.
+     *
+     * @param taskId    The id of the Task.
+     * @return          The Task; or null if it does not exist.
+     */
+    public Uni<Task> getTask(Long taskId) {
+        return taskCache.get(taskId, () -> metrics.timeDb("getTask", () -> Task.findById(taskId)));
+    }
+
+    /**
+     * Moves a Task between two of the Owner's other Tasks, by giving it a rank key between theirs.
+     * Only the moved Task's row is written.
+     *
+     * @param ownerId       The Owner of the tasks.
+     * @param taskId        The id of the Task to move.
+     * @param previousId    The id of the Task which should come directly before it; null to move it first.
+     * @param nextId        The id of the Task which should come directly after it; null to move it last.
+     * @throws              TaskNotFoundException if the Owner does not have a Task with the given id.
+     * @throws              IllegalArgumentException if the Owner does not have the neighbouring Tasks,
+     *                      the Task is its own neighbour, or the previous Task is ranked after the next one.
+     * @return              The moved Task.
+     */
+    public Uni<Task> moveTask(UUID ownerId, Long taskId, Long previousId, Long nextId) {
+        if (taskId.equals(previousId) || taskId.equals(nextId)) {
+            throw new IllegalArgumentException("a Task cannot be moved next to itself");
+        }
+        List<Long> ids = Stream.of(taskId, previousId, nextId).filter(Objects::nonNull).toList();
+        // save any pending re-ranking first, so that it can't overwrite this (later) move
+        return flushRankings(ownerId).flatMap(ignored -> transaction("moveTask", () -> Task.<Task>find("owner.id = ?1 AND id in (?2)", ownerId, ids).list()
+                .flatMap(tasks -> {
+                    Map<Long, Task> tasksById = tasks.stream().collect(Collectors.toMap(task -> task.id, task -> task));
+                    Task task = tasksById.get(taskId);
+                    if (task == null) {
+                        throw new TaskNotFoundException();
+                    }
+                    String previousRank = neighbour(tasksById, previousId).map(Task::getRank).orElse(null);
+                    Optional<Task> next = neighbour(tasksById, nextId);
+                    String nextRank = next.map(Task::getRank).orElse(null);
+
+                    if (previousRank != null && nextRank != null && previousRank.equals(nextRank)) {
+                        // The neighbours' keys are tied (e.g. they were created concurrently), so there is no key
+                        // between them: move the next Task along as well.
+                        return firstRankAfter(ownerId, previousRank).flatMap(upperBound -> {
+                            List<String> keys = RankKeys.between(previousRank, upperBound, 2);
+                            task.setRank(rankKey(ownerId, keys.get(0)));
+                            next.get().setRank(rankKey(ownerId, keys.get(1)));
+                            return Task.persist(task, next.get()).replaceWith(List.of(task, next.get()));
+                        });
+                    }
+                    task.setRank(rankKey(ownerId, RankKeys.between(previousRank, nextRank)));
+                    return task.persist().replaceWith(List.of(task));
+                })))
+                .invoke(moved -> {
+                    cacheTasks(ownerId, moved);
+                    // each moved Task follows the one before it (the next Task follows the moved one, if they were tied)
+                    for (int i = 0; i < moved.size(); i++) {
+                        events.publish(new TaskEvent(TaskEvent.Type.Moved, moved.get(i), i == 0 ? previousId : moved.get(i - 1).id));
+                    }
+                })
+                .map(moved -> moved.get(0));
+    }
+
+    /**
+     * Gets the version of the Owner's Tasks (see {@link TaskVersions}), without querying the database. It
+     * should be read before the Tasks are, so that a list is never tagged with a newer version than its Tasks.
+     *
+     * @param ownerId   The id of the {@link User} who owns the tasks.
+     * @return          The current version of the Owner's Tasks.
+     */
+    public String listVersion(String ownerId) {
+        return versions.current(UUID.fromString(ownerId));
+    }
+
+    /**
+     * Get a single page of the Tasks associated with the given owner.
+     * <p>
+     * The Tasks are sorted by their rank key (see {@link RankKeys}), which orders them the way
+     * the user has ranked them. New Tasks are given a key after all the owner's other Tasks,
+     * so they are appended to the end.
+     * <p>
+     * Pages are addressed with a keyset cursor: the cursor is the (rank key, id) of the last Task
+     * on the previous page, and the next page starts directly after it in rank order.
+     * <p>
+     * The start of each list is cached (see {@link TaskListCache}), so pages within it are served
+     * without querying the database.
      *
      * @param ownerId   The id of the {@link User} who owns the tasks
      * @param states    An optional list of {@link Task.State} to filter results. If null
      *                  or empty, it will default to returning Open tasks.
-     * @return          The ranked set of the Tasks.
+     * @param after     The cursor returned with the previous page; null for the first page.
+     * @param limit     The max number of Tasks in the page. If null, defaults to {@link #DEFAULT_PAGE_SIZE}.
+     * @throws          IllegalArgumentException if the limit is less than 1, or the cursor is malformed.
+     * @return          The page of ranked Tasks.
      */
-    @ReactiveTransactional
-    public Uni<List<Task>> queryByOwner(String ownerId, List<Task.State> states) {
+    public Uni<TaskPage> queryPageByOwner(String ownerId, List<Task.State> states, String after, Integer limit) {
+        List<Task.State> pageStates = (states == null || states.isEmpty()) ? DEFAULT_STATES : states;
+        int pageSize = pageSize(limit);
+        UUID owner = UUID.fromString(ownerId);
+        Cursor cursor = after == null ? null : Cursor.parse(after);
 
-        // set the default status to Task
-        if (states == null || states.isEmpty()) {
-            states = DEFAULT_STATES;
+        if (pendingRankings.containsKey(owner)) {
+            // save the Owner's pending re-ranking first, so that they see their Tasks in the order they left them.
+            // The save is only tried once: if it fails, the page is read in the order which was last saved, and
+            // the scheduled flush retries the re-ranking (a read never waits on it again).
+            return flushRankings(owner).flatMap(ignored -> queryPage(owner, pageStates, cursor, pageSize));
         }
+        return queryPage(owner, pageStates, cursor, pageSize);
+    }
 
-        Uni<List<Task>> taskUni = Task.<Task>find(
-                "ownerid = ?1 AND state in (?2)",
-                Sort.by("id"),
-                ownerId,
-                states
-        ).list();
+    private Uni<TaskPage> queryPage(UUID owner, List<Task.State> pageStates, Cursor cursor, int pageSize) {
+        // Serve the page from the cached list, if the page is within the cached part of the list
+        TaskListCache.Key key = new TaskListCache.Key(owner, Set.copyOf(pageStates));
+        TaskListCache.Entry cached = listCache.get(key);
+        if (cached != null) {
+            Optional<TaskPage> page = metrics.timeMerge("page", () -> pageOf(cached, pageStates, cursor, pageSize));
+            if (page.isPresent()) {
+                return Uni.createFrom().item(page.get());
+            }
+        } else if (cursor == null) {
+            // Load (and cache) the start of the list; the first pages are by far the most viewed
+            long epoch = listCache.epoch(owner);
+            ListQuery query = new ListQuery(owner, key.states(), null, listCache.maxListSize(), epoch);
+            return listQueries.load(query, () -> metrics.timeDb("queryPage", () -> rankedAfter(LIST_PROJECTION, owner, pageStates, null)
+                                    .range(0, listCache.maxListSize())
+                                    .list())
+                            .invoke(tasks -> listCache.put(key, tasks, epoch)))
+                    .map(tasks -> metrics.timeMerge("page", () -> pageOf(tasks, pageStates, 0, pageSize)));
+        }
 
-        // Get the TaskRanking to help with sorting the Open Tasks
-        Uni<TaskRanking> taskRankingUni = TaskRanking.<TaskRanking>find("ownerid = ?1", ownerId)
-                .firstResult()
-                .replaceIfNullWith(() -> new TaskRanking().setRankedTaskIds(new ArrayList<>()));
+        // fetch one extra Task to find out whether there is a next page
+        ListQuery query = new ListQuery(owner, key.states(), cursor, pageSize + 1, listCache.epoch(owner));
+        return listQueries.load(query, () -> metrics.timeDb("queryPage", () -> rankedAfter(LIST_PROJECTION, owner, pageStates, cursor)
+                        .range(0, pageSize)
+                        .list()))
+                .map(tasks -> metrics.timeMerge("page", () -> pageOf(tasks, pageStates, 0, pageSize)));
+    }
 
-        // Join the two async results
-        return Uni.combine().all().unis(taskUni, taskRankingUni)
-                .combinedWith((tasks, taskRanking) -> {
-                    Map<Long, Task> tasksById = tasks.stream().collect(Collectors.toMap(task -> task.id, task -> task));
-                    Stream<Task> rankedTasks = taskRanking.getRankedTaskIds().stream().map(tasksById::get).filter(Objects::nonNull);
-                    Set<Long> rankedTaskSet = new HashSet<>(taskRanking.getRankedTaskIds());
-                    Stream<Task> unRankedTasks = tasks.stream().filter(task -> !rankedTaskSet.contains(task.id));
-                    return Stream.concat(rankedTasks, unRankedTasks).toList();
-                })
-                .flatMap(tasks -> Uni.createFrom().item(tasks));
+    /**
+     * Streams all the Tasks associated with the given owner, in rank order (e.g. to export them).
+     * <p>
+     * Hibernate Reactive has no database cursors, so the Tasks are fetched in chunks of
+     * {@link #STREAM_CHUNK_SIZE} with the same keyset query as the pages of
+     * {@link #queryPageByOwner(String, List, String, Integer)}. The next chunk is only fetched once the
+     * subscriber has requested more Tasks, so memory use is constant, however many Tasks the Owner has.
+     *
+     * @param ownerId   The id of the {@link User} who owns the tasks
+     * @param states    An optional list of {@link Task.State} to filter results. If null
+     *                  or empty, Tasks in all states are streamed.
+     * @return          The stream of ranked Tasks.
+     */
+    public Multi<Task> streamByOwner(String ownerId, List<Task.State> states) {
+        List<Task.State> streamStates = (states == null || states.isEmpty()) ? List.of(Task.State.values()) : states;
+        return streamRanked("", UUID.fromString(ownerId), streamStates);
+    }
+
+    /**
+     * Streams summaries of all the Tasks associated with the given owner (see {@link Task#summary()}), in rank
+     * order, for rendering a whole list at once. The Tasks are fetched in chunks, as with
+     * {@link #streamByOwner(String, List)}.
+     *
+     * @param ownerId   The id of the {@link User} who owns the tasks
+     * @param states    An optional list of {@link Task.State} to filter results. If null
+     *                  or empty, it will default to streaming Open tasks.
+     * @return          The stream of ranked Task summaries.
+     */
+    public Multi<Task> streamSummariesByOwner(String ownerId, List<Task.State> states) {
+        List<Task.State> streamStates = (states == null || states.isEmpty()) ? DEFAULT_STATES : states;
+        return streamRanked(LIST_PROJECTION, UUID.fromString(ownerId), streamStates);
+    }
+
+    /**
+     * Streams the Owner's Tasks in rank order, a chunk of {@link #STREAM_CHUNK_SIZE} Tasks at a time.
+     *
+     * @param select    The start of the query (see {@link #rankedAfter(String, UUID, List, Cursor)}).
+     */
+    private Multi<Task> streamRanked(String select, UUID owner, List<Task.State> states) {
+        return flushRankings(owner).onItem().transformToMulti(ignored -> Multi.createBy().repeating()
+                .uni(AtomicReference<Cursor>::new, last -> metrics.timeDb("stream", () -> rankedAfter(select, owner, states, last.get())
+                                .range(0, STREAM_CHUNK_SIZE - 1)
+                                .list())
+                        .invoke(tasks -> {
+                            if (!tasks.isEmpty()) {
+                                last.set(Cursor.of(tasks.get(tasks.size() - 1)));
+                            }
+                        }))
+                // a chunk which isn't full is the last one
+                .whilst(tasks -> tasks.size() == STREAM_CHUNK_SIZE)
+                .onItem().<Task>disjoint());
+    }
+
+    /**
+     * Searches the titles and descriptions of the Owner's Tasks (in all states), best match first.
+     * <p>
+     * The words of the query are matched by their stem (so "paint" finds "painting"), and a match in the
+     * title ranks above a match in the description.
+     *
+     * @param ownerId   The id of the {@link User} who owns the tasks.
+     * @param query     The words to search for.
+     * @param limit     The max number of results. If null, defaults to {@link #DEFAULT_SEARCH_SIZE}.
+     * @throws          IllegalArgumentException if the query is blank, or the limit is less than 1.
+     * @return          The matching Tasks, with the matches highlighted.
+     */
+    public Uni<List<TaskSearchResult>> search(String ownerId, String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("query must not be blank");
+        }
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        int size = limit == null ? DEFAULT_SEARCH_SIZE : Math.min(limit, MAX_SEARCH_SIZE);
+        UUID owner = UUID.fromString(ownerId);
+        return metrics.timeDb("search", () -> Panache.getSession().flatMap(session -> session
+                        .createNativeQuery(SEARCH_QUERY, session.getResultSetMapping(Object[].class, Task.SEARCH_RESULT_MAPPING))
+                        .setParameter("query", query)
+                        .setParameter("ownerId", owner)
+                        .setParameter("limit", size)
+                        .setParameter("titleOptions", MATCH_MARKERS + ", HighlightAll=true")
+                        .setParameter("descriptionOptions", MATCH_MARKERS + ", MaxFragments=2, MaxWords=20, MinWords=5")
+                        .getResultList()))
+                .map(rows -> rows.stream()
+                        .map(row -> TaskSearchResult.of((Task) row[0], (String) row[1], (String) row[2], (Double) row[3]))
+                        .toList());
     }
 
-    @ReactiveTransactional
     public Uni<Task.Result> reopenTask(Long taskId) {
-        return Task.<Task>findById(taskId)
-                .onItem().ifNull().failWith(new TaskNotFoundException())
+        return transition(taskId, Task.State.Open);
+    }
+
+    /**
+     * Submits a new ranking of the Owner's tasks, which is saved (with {@link #saveTaskRankings(UUID, List)})
+     * once the Owner has stopped re-ranking for the {@link #coalesceWindow}.
+     * <p>
+     * Dragging Tasks around submits a burst of re-rankings, and each one replaces the last (as it is the
+     * whole order the Owner can see), so the burst is saved with a single write. The Owner's reads and moves
+     * save the pending re-ranking first, so the Owner never sees an order older than the one they submitted.
+     *
+     * @param ownerId       The Owner of the tasks that are being re-ranked.
+     * @param rankings      The ranked task ids.
+     */
+    public void submitTaskRankings(UUID ownerId, List<Long> rankings) {
+        pendingRankings.put(ownerId, new PendingRanking(List.copyOf(rankings), System.nanoTime()));
+        versions.bump(ownerId);
+    }
+
+    /**
+     * Saves a new ranking of the Owner's tasks.
+     * <p>
+     * Only as few Tasks as possible are given new rank keys: the Tasks which are already in the
+     * right order relative to each other keep their keys, so moving a single Task writes a single
+     * row. Tasks missing from the given rankings (e.g. because the client has not loaded them)
+     * keep their keys too; the re-ranked Tasks are kept before any Tasks ranked after them.
+     *
+     * @param ownerId       The Owner of the tasks that are being re-ranked.
+     * @param rankings      The ranked task ids.
+     * @return              The Tasks which were given new rank keys.
+     */
+    public Uni<List<Task>> saveTaskRankings(UUID ownerId, List<Long> rankings) {
+        List<Long> rankedIds = List.copyOf(new LinkedHashSet<>(rankings));
+        if (rankedIds.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        return transaction("saveTaskRankings", () -> Task.<Task>find("owner.id = ?1 AND id in (?2)", RANK_ORDER, ownerId, rankedIds).list()
+                .flatMap(tasks -> {
+                    if (tasks.isEmpty()) {
+                        return Uni.createFrom().item(List.<TaskEvent>of());
+                    }
+                    return firstRankAfter(ownerId, tasks.get(tasks.size() - 1).getRank()).flatMap(upperBound -> {
+                        List<Task> ordered = inOrder(rankedIds, tasks);
+                        List<Task> reranked = metrics.timeMerge("rerank", () -> rerank(ownerId, ordered, upperBound));
+                        return Task.persist(reranked).replaceWith(movedEvents(ordered, reranked));
+                    });
+                }))
+                .invoke(moved -> {
+                    cacheTasks(ownerId, moved.stream().map(TaskEvent::task).toList());
+                    moved.forEach(events::publish);
+                })
+                .map(moved -> moved.stream().map(TaskEvent::task).toList());
+    }
+
+    /**
+     * Saves the pending re-rankings of the Owners who have stopped re-ranking for the {@link #coalesceWindow}.
+     */
+    @Scheduled(every = "{tasks.rank.flush-every}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> flushRankings() {
+        long settledBefore = System.nanoTime() - coalesceWindow.toNanos();
+        List<UUID> owners = pendingRankings.entrySet().stream()
+                .filter(entry -> entry.getValue().submittedAt() - settledBefore <= 0)
+                .map(Map.Entry::getKey)
+                .toList();
+        return flushRankings(owners);
+    }
+
+    /**
+     * Saves all the pending re-rankings when the application shuts down, so that none are lost.
+     */
+    void flushRankingsOnShutdown(@Observes ShutdownEvent event) {
+        if (pendingRankings.isEmpty()) {
+            return;
+        }
+        // Hibernate Reactive needs a (safe) Vert.x context, which the shutdown thread doesn't have
+        Context context = VertxContext.getOrCreateDuplicatedContext(vertx);
+        VertxContextSafetyToggle.setContextSafe(context, true);
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        context.runOnContext(ignored -> flushRankings(List.copyOf(pendingRankings.keySet()))
+                .subscribe().with(flushed::complete, flushed::completeExceptionally));
+        try {
+            flushed.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            LOG.error("failed to save the pending re-rankings on shutdown", e);
+        }
+    }
+
+    private Uni<Void> flushRankings(Collection<UUID> owners) {
+        return Multi.createFrom().iterable(owners)
+                .onItem().transformToUniAndConcatenate(this::flushRankings)
+                .collect().last()
+                .replaceWithVoid();
+    }
+
+    /**
+     * Saves the Owner's pending re-ranking, if they have one. If it fails to save, it is kept pending (unless the
+     * Owner has submitted a newer one since), so that it is retried by the next flush.
+     */
+    private Uni<Void> flushRankings(UUID ownerId) {
+        PendingRanking pending = pendingRankings.remove(ownerId);
+        if (pending == null) {
+            return Uni.createFrom().voidItem();
+        }
+        return saveTaskRankings(ownerId, pending.rankings())
+                .replaceWithVoid()
+                .onFailure().invoke(e -> {
+                    LOG.error("failed to save the re-ranking of " + ownerId + ", it will be retried", e);
+                    pendingRankings.putIfAbsent(ownerId, pending);
+                })
+                .onFailure().recoverWithNull();
+    }
+
+    /**
+     * Re-balances the rank keys of the Owners whose keys have grown too long from repeated moves,
+     * by giving all of their Tasks fresh, evenly spaced keys (in the same order).
+     */
+    @Scheduled(every = "{tasks.rank.rebalance-every}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> rebalanceRanks() {
+        List<UUID> owners = List.copyOf(ownersToRebalance);
+        ownersToRebalance.removeAll(owners);
+        return Multi.createFrom().iterable(owners)
+                .onItem().transformToUniAndConcatenate(ownerId -> transaction("rebalance", () -> rebalance(ownerId))
+                        .invoke(tasks -> {
+                            tasks.forEach(task -> taskCache.put(task.id, task));
+                            listCache.invalidate(ownerId);
+                            versions.bump(ownerId);
+                        })
+                        .onFailure().invoke(e -> LOG.error("failed to re-balance the ranks of " + ownerId, e))
+                        .onFailure().recoverWithNull())
+                .collect().last()
+                .replaceWithVoid();
+    }
+
+    private Uni<List<Task>> rebalance(UUID ownerId) {
+        return Task.<Task>find("owner.id = ?1", RANK_ORDER, ownerId).list().flatMap(tasks -> {
+            List<String> keys = RankKeys.evenlySpaced(tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                tasks.get(i).setRank(keys.get(i));
+            }
+            return Task.persist(tasks).replaceWith(tasks);
+        });
+    }
+
+    /**
+     * Moves a Task into a State (e.g. completes it), unless it is already in that State.
+     * <p>
+     * The transition is a single conditional UPDATE, which returns the changed row. So it takes one round-trip,
+     * and concurrent transitions of the same Task (e.g. from two browser tabs) can't race: only one of them
+     * changes the row, and the others are NotModified.
+     *
+     * @param taskId    The id of the Task.
+     * @param state     The State to move the Task into.
+     * @throws          TaskNotFoundException if the Task does not exist.
+     * @return          Updated, or NotModified if the Task was already in the State.
+     */
+    // DEV NOTE: The entity cache is not consulted, even to skip a transition which looks like a no-op: a stale
+    // entry would hide a transition which is needed. The UPDATE's result is what decides.
+    private Uni<Task.Result> transition(Long taskId, Task.State state) {
+        // DEV NOTE: HQL (in Hibernate 5) has no RETURNING clause, so this is a native query
+        return transaction("transition", () -> Panache.getSession().flatMap(session -> session
+                        .createNativeQuery("UPDATE task SET state = ?1, version = version + 1 WHERE id = ?2 AND state <> ?1 RETURNING *", Task.class)
+                        .setParameter(1, state.name())
+                        .setParameter(2, taskId)
+                        .getSingleResultOrNull())
                 .flatMap(task -> {
-                    if (task.isOpen()) {
-                        return Uni.createFrom().item(new Task.Result.NotModified());
-                    } else {
-                        return task.reopen().<Task>persist().map(Task.Result.Updated::new);
+                    if (task != null) {
+                        return Uni.createFrom().<Task.Result>item(new Task.Result.Updated(task));
+                    }
+                    // No row changed: the Task is either already in the State, or doesn't exist
+                    return Task.count("id", taskId).<Task.Result>map(count -> {
+                        if (count == 0) {
+                            throw new TaskNotFoundException();
+                        }
+                        return new Task.Result.NotModified();
+                    });
+                }))
+                .invoke(result -> {
+                    if (result instanceof Task.Result.Updated updated) {
+                        cacheTask(updated.task());
+                        events.publish(new TaskEvent(transitionEvent(state), updated.task()));
                     }
                 });
     }
 
     /**
-     * This a new set of task rankings in the {@link TaskRanking} model associated with the
-     * Owner of the tasks.
+     * Changes the data attributes (title, description and state) of a Task, and saves it.
      * <p>
-     * These objects are persisted lazily (only when tasks are re-ranked). If the User does
-     * not already have a {@link TaskRanking}, one will be created.
+     * The save is optimistic: it is conditional on the version of the Task which was changed, and no rows are
+     * locked. If the Task is in the entity cache, a copy of it is changed and written with a single UPDATE
+     * (conditional on the cached version), which skips loading the Task from the database. Otherwise, or if the
+     * cached copy turns out to be out of date, the Task is loaded and saved by Hibernate, which checks the version.
+     * <p>
+     * If the caller gave the version it changed, a newer version is a conflict. Otherwise, the change is applied
+     * to the newest version, and retried if the Task changes while it is being saved.
      *
-     * @param ownerId       The Owner of the tasks that are being re-ranked.
-     * @param rankings      The ranked task ids.
-     * @return              The updated TaskRanking object.
+     * @param taskId            The id of the Task.
+     * @param expectedVersion   The version of the Task which the caller changed; null to change the current version.
+     * @param change            Changes the Task.
+     * @throws                  TaskNotFoundException if the Task does not exist.
+     * @throws                  TaskConflictException if the Task is not at the expected version.
+     * @return                  The saved Task.
      */
-    @ReactiveTransactional
-    public Uni<TaskRanking> saveTaskRankings(UUID ownerId, List<Long> rankings) {
-        return TaskRanking.<TaskRanking>find("ownerid = ?1", ownerId)
-                .firstResult()
-                .onItem().ifNull().switchTo(User.<User>findById(ownerId).map(TaskRanking::new))
-                .flatMap(taskRanking -> taskRanking.setRankedTaskIds(rankings).persist());
+    private Uni<Task> save(Long taskId, Long expectedVersion, UnaryOperator<Task> change) {
+        Optional<Task> cached = taskCache.getIfPresent(taskId);
+        Uni<Task> saved;
+        if (cached.isPresent() && (expectedVersion == null || expectedVersion == cached.get().getVersion())) {
+            Task task = change.apply(cached.get().copy());
+            saved = transaction("update", () -> Task.update("title = ?1, description = ?2, state = ?3, version = version + 1"
+                            + " WHERE id = ?4 AND version = ?5",
+                            task.getTitle(), task.getDescription(), task.getState(), taskId, task.getVersion()))
+                    .flatMap(count -> {
+                        if (count == 1) {
+                            return Uni.createFrom().item(task.nextVersion());
+                        }
+                        // the cached copy is out of date (or the Task is gone), so go by the database instead
+                        taskCache.invalidate(taskId);
+                        return saveLoaded(taskId, expectedVersion, change);
+                    });
+        } else {
+            saved = saveLoaded(taskId, expectedVersion, change);
+        }
+        return saved.invoke(task -> {
+            cacheTask(task);
+            events.publish(new TaskEvent(TaskEvent.Type.Updated, task));
+        });
+    }
+
+    /**
+     * Loads a Task, changes it and saves it, unless it is not at the expected version (see {@link #save}).
+     */
+    private Uni<Task> saveLoaded(Long taskId, Long expectedVersion, UnaryOperator<Task> change) {
+        Uni<Task> saved = transaction("update", () -> Task.<Task>findById(taskId)
+                .onItem().ifNull().failWith(TaskNotFoundException::new)
+                .flatMap(task -> {
+                    if (expectedVersion != null && expectedVersion != task.getVersion()) {
+                        throw new TaskConflictException(task);
+                    }
+                    return change.apply(task).<Task>persist();
+                }));
+        if (expectedVersion == null) {
+            return saved.onFailure(TaskService::isStale).retry().atMost(MAX_SAVE_RETRIES);
+        }
+        // the Task changed between loading and saving it: the caller's version is out of date
+        return saved.onFailure(TaskService::isStale).recoverWithUni(() -> metrics.timeDb("getTask", () -> Task.<Task>findById(taskId))
+                .onItem().ifNull().failWith(TaskNotFoundException::new)
+                .onItem().failWith(TaskConflictException::new));
+    }
+
+    /**
+     * @return  Whether the failure is Hibernate finding that a versioned row changed since it was loaded.
+     */
+    private static boolean isStale(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StaleStateException || cause instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // DEV NOTE: package-private for the benchmarks (see src/jmh)
+    /**
+     * Gives new rank keys to as few of the Tasks as possible, so that they sort in the given order.
+     * The Tasks in the longest subsequence which is already in order keep their keys, and the rest
+     * get new keys between their neighbours.
+     *
+     * @param ownerId       The Owner of the tasks.
+     * @param tasks         The Tasks, in their new order.
+     * @param upperBound    The rank key which all the new keys must sort before; null if there is none.
+     * @return              The Tasks which were given new keys.
+     */
+    List<Task> rerank(UUID ownerId, List<Task> tasks, String upperBound) {
+        boolean[] inOrder = longestIncreasingRun(tasks);
+        List<Task> reranked = new ArrayList<>();
+        String before = null;
+        int i = 0;
+        while (i < tasks.size()) {
+            if (inOrder[i]) {
+                before = tasks.get(i++).getRank();
+                continue;
+            }
+            // give the whole block of out-of-order Tasks keys between the two in-order neighbours
+            int end = i;
+            while (end < tasks.size() && !inOrder[end]) {
+                end++;
+            }
+            String after = end < tasks.size() ? tasks.get(end).getRank() : upperBound;
+            List<String> keys = RankKeys.between(before, after, end - i);
+            for (String key : keys) {
+                reranked.add(tasks.get(i++).setRank(rankKey(ownerId, key)));
+            }
+            before = keys.get(keys.size() - 1);
+        }
+        return reranked;
+    }
+
+    /**
+     * Finds the longest subsequence of the Tasks whose rank keys are strictly increasing (in O(n log n)).
+     *
+     * @return  For each Task, whether it is part of the subsequence.
+     */
+    private static boolean[] longestIncreasingRun(List<Task> tasks) {
+        int[] tails = new int[tasks.size()];      // tails[k] = index of the smallest last Task of a run of length k+1
+        int[] previous = new int[tasks.size()];   // previous[i] = index of the Task before i in its run
+        int length = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            String rank = tasks.get(i).getRank();
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (tasks.get(tails[middle]).getRank().compareTo(rank) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        boolean[] inRun = new boolean[tasks.size()];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            inRun[i] = true;
+        }
+        return inRun;
+    }
+
+    /**
+     * @throws  IllegalArgumentException if the neighbouring Task is not found.
+     * @return  The neighbouring Task with the given id, or empty if there is no neighbour.
+     */
+    private static Optional<Task> neighbour(Map<Long, Task> tasksById, Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Task task = tasksById.get(id);
+        if (task == null) {
+            throw new IllegalArgumentException("Task " + id + " not found");
+        }
+        return Optional.of(task);
+    }
+
+    /**
+     * @return  The given Tasks, in the order of the given ids.
+     */
+    private static List<Task> inOrder(List<Long> ids, List<Task> tasks) {
+        Map<Long, Task> tasksById = tasks.stream().collect(Collectors.toMap(task -> task.id, task -> task));
+        return ids.stream().map(tasksById::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Keeps track of the Owners with rank keys which are too long, for re-balancing in the background.
+     *
+     * @return  The given rank key.
+     */
+    private String rankKey(UUID ownerId, String key) {
+        if (RankKeys.needsRebalance(key)) {
+            ownersToRebalance.add(ownerId);
+        }
+        return key;
+    }
+
+    /**
+     * The keyset query for the Owner's Tasks after the cursor, in rank order.
+     *
+     * @param select    The start of the query: {@link #LIST_PROJECTION} for summaries of the Tasks, or an empty
+     *                  string for the whole Tasks.
+     * @param cursor    The position to start after; null to start from the first Task.
+     */
+    private static PanacheQuery<Task> rankedAfter(String select, UUID ownerId, List<Task.State> states, Cursor cursor) {
+        if (cursor == null) {
+            return Task.find(select + "owner.id = ?1 AND state in (?2)", RANK_ORDER, ownerId, states);
+        }
+        return Task.find(select + "owner.id = ?1 AND state in (?2) AND (rank > ?3 OR (rank = ?3 AND id > ?4))",
+                RANK_ORDER, ownerId, states, cursor.rank(), cursor.id());
+    }
+
+    /**
+     * @return  The rank key of the Owner's last Task, or null if they have none.
+     */
+    private static Uni<String> lastRank(UUID ownerId) {
+        return Panache.getSession().flatMap(session -> session
+                .createQuery("SELECT max(t.rank) FROM Task t WHERE t.owner.id = ?1", String.class)
+                .setParameter(1, ownerId)
+                .getSingleResult());
+    }
+
+    /**
+     * @return  The first of the Owner's rank keys after the given key, or null if there is none.
+     */
+    private static Uni<String> firstRankAfter(UUID ownerId, String rank) {
+        return Panache.getSession().flatMap(session -> session
+                .createQuery("SELECT min(t.rank) FROM Task t WHERE t.owner.id = ?1 AND t.rank > ?2", String.class)
+                .setParameter(1, ownerId)
+                .setParameter(2, rank)
+                .getSingleResult());
+    }
+
+    /**
+     * @return  The event for a Task which was moved into the State.
+     */
+    private static TaskEvent.Type transitionEvent(Task.State state) {
+        return switch (state) {
+            case Open -> TaskEvent.Type.Reopened;
+            case Complete -> TaskEvent.Type.Completed;
+        };
+    }
+
+    /**
+     * @param ordered   The Tasks, in their new order.
+     * @param moved     The Tasks which were given new rank keys.
+     * @return          A Moved event for each of the moved Tasks (in their new order), which places it after
+     *                  the Task before it.
+     */
+    private static List<TaskEvent> movedEvents(List<Task> ordered, List<Task> moved) {
+        Set<Long> movedIds = moved.stream().map(task -> task.id).collect(Collectors.toSet());
+        List<TaskEvent> movedEvents = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            if (movedIds.contains(ordered.get(i).id)) {
+                movedEvents.add(new TaskEvent(TaskEvent.Type.Moved, ordered.get(i), i == 0 ? null : ordered.get(i - 1).id));
+            }
+        }
+        return movedEvents;
+    }
+
+    // DEV NOTE: The version is bumped after the list cache is updated: a list read after the bump must not be
+    // served from the cache as it was before the change (it would be tagged with the new version).
+    /**
+     * Updates the caches, and the version of the Owner's Tasks, with a saved Task.
+     */
+    private void cacheTask(Task task) {
+        taskCache.put(task.id, task);
+        metrics.timeMerge("cacheUpdate", () -> listCache.onSaved(task.getOwnerId(), task.summary()));
+        fragments.invalidate(List.of(task));
+        versions.bump(task.getOwnerId());
+    }
+
+    /**
+     * Updates the caches, and the version of the Owner's Tasks, with the Owner's saved Tasks.
+     */
+    private void cacheTasks(UUID ownerId, List<Task> tasks) {
+        tasks.forEach(task -> taskCache.put(task.id, task));
+        metrics.timeMerge("cacheUpdate", () -> listCache.onSaved(ownerId, tasks.stream().map(Task::summary).toList()));
+        fragments.invalidate(tasks);
+        versions.bump(ownerId);
+    }
+
+    /**
+     * Runs the work in a transaction, and times it as a database operation.
+     *
+     * @param operation     The name of the operation (e.g. "createTask").
+     * @param work          The work to run in the transaction.
+     */
+    private <T> Uni<T> transaction(String operation, Supplier<Uni<T>> work) {
+        return metrics.timeDb(operation, () -> Panache.withTransaction(work));
+    }
+
+    /**
+     * Takes the page after the cursor from a cached list.
+     *
+     * @return  The page; or empty if the page runs past the end of the cached part of the list.
+     */
+    private static Optional<TaskPage> pageOf(TaskListCache.Entry cached, List<Task.State> states, Cursor cursor, int pageSize) {
+        List<Task> tasks = cached.tasks();
+        int start = 0;
+        if (cursor != null) {
+            // binary search for the first Task after the cursor
+            int end = tasks.size();
+            while (start < end) {
+                int middle = (start + end) >>> 1;
+                if (cursor.compareTo(tasks.get(middle)) >= 0) {
+                    start = middle + 1;
+                } else {
+                    end = middle;
+                }
+            }
+        }
+        // one extra Task is needed to find out whether there is a next page
+        if (!cached.complete() && start + pageSize >= tasks.size()) {
+            return Optional.empty();
+        }
+        return Optional.of(pageOf(tasks, states, start, pageSize));
+    }
+
+    // DEV NOTE: package-private for the benchmarks (see src/jmh)
+    /**
+     * Takes the page of (up to) pageSize Tasks, starting at the given index.
+     */
+    static TaskPage pageOf(List<Task> tasks, List<Task.State> states, int start, int pageSize) {
+        int end = Math.min(start + pageSize, tasks.size());
+        List<Task> pageTasks = tasks.subList(start, end);
+        String nextCursor = end < tasks.size() ? Cursor.of(pageTasks.get(pageTasks.size() - 1)).toString() : null;
+        return new TaskPage(pageTasks, states, nextCursor);
+    }
+
+    /**
+     * Resolves the size of a page from the limit requested by the caller.
+     */
+    private static int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
     }
 
     /**
@@ -132,13 +1051,59 @@ public class TaskService {
      *                          attributes are null, they will be ignored.
      * @return
      */
-    @ReactiveTransactional
     public Uni<Task> update(Long taskId, Task taskWithUpdates) {
-        return Task.<Task>findById(taskId)
-                .onItem().ifNull().failWith(new TaskNotFoundException())
-                .flatMap(task -> task
-                        .setTitle(taskWithUpdates.getTitle())
-                        .setDescription(taskWithUpdates.getDescription())
-                        .persist());
+        return update(taskId, taskWithUpdates, null);
+    }
+
+    /**
+     * Updates mutable data attributes on the {@Link Task}, if it is still at the version the caller has.
+     *
+     * @param taskId            The id of the Task to update.
+     * @param taskWithUpdates   A Task object which contains mutable attributes to modify. If any
+     *                          attributes are null, they will be ignored.
+     * @param expectedVersion   The version of the Task the caller has; null to update the current version.
+     * @throws                  TaskNotFoundException if the Task does not exist.
+     * @throws                  TaskConflictException if the Task has changed since the expected version.
+     * @return                  The updated Task.
+     */
+    public Uni<Task> update(Long taskId, Task taskWithUpdates, Long expectedVersion) {
+        return save(taskId, expectedVersion, task -> task
+                .setTitle(taskWithUpdates.getTitle())
+                .setDescription(taskWithUpdates.getDescription()));
+    }
+
+    /**
+     * The position of a Task in rank order, which is used as the keyset cursor of a page.
+     * It is formatted as "{rank key}.{id}".
+     */
+    private record Cursor(String rank, Long id) {
+
+        static Cursor of(Task task) {
+            return new Cursor(task.getRank(), task.id);
+        }
+
+        /**
+         * @return  Negative, zero or positive if the cursor is before, at, or after the Task in rank order.
+         */
+        int compareTo(Task task) {
+            int byRank = rank.compareTo(task.getRank());
+            return byRank != 0 ? byRank : id.compareTo(task.id);
+        }
+
+        /**
+         * @throws  IllegalArgumentException if the cursor is malformed.
+         */
+        static Cursor parse(String cursor) {
+            int separator = cursor.lastIndexOf('.');
+            if (separator < 1) {
+                throw new IllegalArgumentException(cursor + " is not a valid cursor");
+            }
+            return new Cursor(cursor.substring(0, separator), Long.parseLong(cursor.substring(separator + 1)));
+        }
+
+        @Override
+        public String toString() {
+            return rank + "." + id;
+        }
     }
 }
@@ -0,0 +1,60 @@
+package org.alexgraham.tasks;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The version of each Owner's Tasks, which changes whenever any of their Tasks change. The lists of Tasks are
+ * tagged with it (as ETags), so a client which already has the latest list is told so without a query.
+ * <p>
+ * Versions are drawn from a single clock, which only goes forward, so an Owner never gets a version they had
+ * before: not when {@link #bump(UUID)} is called, and not when their version is evicted and a new one is drawn
+ * (that just makes their clients load the list once more). Each version is prefixed by the time this instance
+ * started, so the versions handed out before a restart (which may have served older assets) don't match either.
+ */
+// DEV NOTE: Like TaskEventBroadcaster, this is in-process. If we ran more than one instance, the versions would
+// have to be shared (e.g. a column on the users table, bumped by the writes), or clients could be told a list is
+// unchanged by an instance which has not seen the latest write.
+@ApplicationScoped
+public class TaskVersions {
+
+    private final String boot = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @ConfigProperty(name = "tasks.versions.max-owners", defaultValue = "100000")
+    long maxOwners;
+
+    private Cache<UUID, Long> versions;
+
+    @PostConstruct
+    void init() {
+        versions = Caffeine.newBuilder()
+                .maximumSize(maxOwners)
+                .build();
+    }
+
+    /**
+     * @param ownerId   The Owner of the Tasks.
+     * @return          The current version of the Owner's Tasks (e.g. "lx3k2a9q.42").
+     */
+    public String current(UUID ownerId) {
+        return boot + "." + versions.get(ownerId, ignored -> clock.incrementAndGet());
+    }
+
+    /**
+     * Gives the Owner's Tasks a new version. This is called after a change to the Tasks is saved (or, for
+     * re-rankings, submitted), so that the lists tagged with an older version are loaded again.
+     *
+     * @param ownerId   The Owner of the Tasks which changed.
+     */
+    public void bump(UUID ownerId) {
+        versions.put(ownerId, clock.incrementAndGet());
+    }
+}
@@ -5,7 +5,6 @@ import org.alexgraham.tasks.Task;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Type;
 
-import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -18,7 +17,6 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Cacheable
 @Table(name = "user", schema = "public")
 public class User extends PanacheEntityBase {
 
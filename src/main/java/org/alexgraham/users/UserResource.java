@@ -3,19 +3,25 @@ package org.alexgraham.users;
 import io.quarkus.hibernate.reactive.panache.Panache;
 import io.quarkus.panache.common.Sort;
 import io.smallrye.mutiny.Uni;
+import org.alexgraham.cache.EntityCache;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.core.Response;
 import java.net.URI;
 import java.util.List;
+import java.util.UUID;
 
 @Path("/users")
 @ApplicationScoped
 public class UserResource {
 
+    @Inject
+    EntityCache<UUID, User> userCache;
+
     @GET
     public Uni<List<User>> list() {
         return User.listAll(Sort.by("name"));
@@ -24,6 +30,7 @@ public class UserResource {
     @POST
     public Uni<Response> create(User user) {
         return Panache.<User>withTransaction(user::persist)
+        .invoke(newUser -> userCache.put(newUser.getId(), newUser))
         .onItem()
         .transform(newUser -> Response
                 .created(URI.create("/users/" + newUser.getId()))
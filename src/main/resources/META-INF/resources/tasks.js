@@ -8,9 +8,113 @@
         document.querySelectorAll(".new-task").forEach((elm) => (elm.value = ""));
     });
 
+    /**
+     * When a Task is saved from a version which is out of date (e.g. it was changed in another tab since), the
+     * server answers with 409 Conflict and the current Task. Swap it in, so the user sees what it is now; by
+     * default, htmx doesn't swap error responses.
+     */
+    document.addEventListener("htmx:beforeSwap", (evt) => {
+        if (evt.detail.xhr.status === 409) {
+            evt.detail.shouldSwap = true;
+            evt.detail.isError = false;
+        }
+    });
+
+    /**
+     * Finds the closest Task to the given element in the given direction ("previousElementSibling" or
+     * "nextElementSibling"), skipping over anything else in the list (e.g. the placeholder for the next page).
+     */
+    function siblingTask(elm, direction) {
+        let sibling = elm[direction];
+        while (sibling && !sibling.classList.contains("task")) {
+            sibling = sibling[direction];
+        }
+        return sibling;
+    }
+
+    /**
+     * Loads the list of open Tasks again, with the order which is saved (e.g. after a move failed to save).
+     */
+    function reloadOpenTasks() {
+        htmx.ajax("GET", "/tasks", { target: "#open-tasks", swap: "innerHTML" });
+    }
+
+    /**
+     * Saves a Task's new position after it is dragged in a sortable list. Only the ids of the Task's new
+     * neighbours are sent, so the request stays the same size no matter how long the list is. If the move
+     * isn't saved (e.g. the list changed in another tab, so the neighbours are out of date), the list is
+     * loaded again, so that it doesn't show an order which the server doesn't have.
+     */
+    function moveTask(evt) {
+        if (evt.oldIndex === evt.newIndex) {
+            return;
+        }
+        let params = new URLSearchParams();
+        let previous = siblingTask(evt.item, "previousElementSibling");
+        let next = siblingTask(evt.item, "nextElementSibling");
+        if (previous) {
+            params.append("previousId", previous.dataset.taskId);
+        }
+        if (next) {
+            params.append("nextId", next.dataset.taskId);
+        }
+        fetch("/tasks/" + evt.item.dataset.taskId + "/move", {
+            method: "POST",
+            headers: { "Content-Type": "application/x-www-form-urlencoded", "HX-Request": "true" },
+            body: params,
+        }).then((response) => {
+            if (!response.ok) {
+                reloadOpenTasks();
+            }
+        }).catch(reloadOpenTasks);
+    }
+
+    /**
+     * Places a Task which was moved in another view (see the Moved event in TaskResource/event.html) after its
+     * new neighbour. If the neighbour isn't on the page (e.g. it is in a page which has not been loaded yet), the
+     * Task is left where it is, rather than removed with nowhere to put it.
+     */
+    function placeMovedTask(move) {
+        move.remove();
+        let taskList = document.querySelector("#open-tasks .task-list");
+        if (!taskList) {
+            return;
+        }
+        let previous = null;
+        if (move.dataset.previousId) {
+            previous = taskList.querySelector("#task-" + move.dataset.previousId);
+            if (!previous) {
+                return;
+            }
+        }
+        let task = move.content.querySelector(".task");
+        taskList.querySelectorAll("#task-" + move.dataset.taskId).forEach((elm) => elm.remove());
+        if (previous) {
+            previous.after(task);
+        } else {
+            taskList.prepend(task);
+        }
+        htmx.process(task);
+    }
+
     htmx.onLoad(function(content) {
-        // This is required to render the Feather icons
-        feather.replace();
+        let moves = content.matches("template.task-move") ? [content] : content.querySelectorAll("template.task-move");
+        moves.forEach(placeMovedTask);
+
+        // A task created or reopened while the list is still paging in is appended to the end of the list,
+        // and may show up again in a later page. Keep the newly loaded copy, and remove the stale one.
+        let tasks = content.matches(".task") ? [content] : content.querySelectorAll(".task");
+        tasks.forEach((task) => {
+            let taskList = task.closest(".task-list");
+            if (!taskList) {
+                return;
+            }
+            taskList.querySelectorAll("#" + task.id).forEach((elm) => {
+                if (elm !== task) {
+                    elm.remove();
+                }
+            });
+        });
 
         // make the Tasks in task-lists sortable
         let sortables = content.querySelectorAll(".sortable .task-list");
@@ -20,6 +124,7 @@
                 animation: 150,
                 ghostClass: 'blue-background-class',
                 filter: '.not-sortable',
+                onEnd: moveTask,
             });
         }
     });
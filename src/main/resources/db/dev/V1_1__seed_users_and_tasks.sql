@@ -0,0 +1,24 @@
+-- Sample users and Tasks for dev mode and the tests (not applied in production; see application.properties)
+
+INSERT INTO public.user (id, name)
+VALUES ('ed8e4579-ba54-4441-8dee-07eb25d57e4b', 'Alex Graham');
+
+INSERT INTO public.user (id, name)
+VALUES ('298eef26-8897-4aee-8ada-3cb82e7b0900', 'Colorado Slim');
+
+INSERT INTO public.task(id, title, ownerid, state, rank_key, description)
+VALUES (nextval('task_seq'), '[A] Build create task endpoint', 'ed8e4579-ba54-4441-8dee-07eb25d57e4b', 'Open', '0001',
+        'The sky above the port was the color of a television tuned to a dead channel.');
+
+INSERT INTO public.task(id, title, ownerid, state, rank_key)
+VALUES (nextval('task_seq'), '[B] build list tasks endpoint','ed8e4579-ba54-4441-8dee-07eb25d57e4b', 'Open', '0002');
+
+INSERT INTO public.task(id, title, ownerid, state, rank_key, description)
+VALUES (nextval('task_seq'), '[C] build get task endpoint', 'ed8e4579-ba54-4441-8dee-07eb25d57e4b', 'Open', '0003',
+        'Some description of something that was once but does no longer remains of this world like a sea of sand of what was once ruins of what was once some place some people had once lived.');
+
+INSERT INTO public.task(id, title, ownerid, state, rank_key)
+VALUES (nextval('task_seq'), '[D] build edit task endpoint', 'ed8e4579-ba54-4441-8dee-07eb25d57e4b', 'Open', '0004');
+
+INSERT INTO public.task(id, title, ownerid, state, rank_key)
+VALUES (nextval('task_seq'), 'be awesome', '298eef26-8897-4aee-8ada-3cb82e7b0900', 'Open', '0001');
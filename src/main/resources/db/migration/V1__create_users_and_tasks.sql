@@ -0,0 +1,22 @@
+-- The schema as Hibernate generated it from the User and Task entities (before the schema was versioned)
+
+CREATE TABLE public.user (
+    id      uuid            NOT NULL,
+    name    varchar(128)    NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Each nextval reserves a block of ids, which Hibernate hands out from memory (see Task.ALLOCATION_SIZE)
+CREATE SEQUENCE public.task_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE public.task (
+    id          bigint          NOT NULL,
+    title       varchar(128),
+    description varchar(2048),
+    ownerid     uuid            NOT NULL,
+    state       varchar(255)    NOT NULL,
+    -- the "C" collation orders the rank keys byte by byte, like String::compareTo (see RankKeys)
+    rank_key    varchar(255)    COLLATE "C" NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT task_ownerid_fkey FOREIGN KEY (ownerid) REFERENCES public.user (id)
+);
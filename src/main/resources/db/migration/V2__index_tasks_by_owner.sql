@@ -0,0 +1,8 @@
+-- Every list query filters on the owner and the states, and orders by (rank_key, id), which is also the
+-- keyset cursor of the pages. With the key in the index, a page is a range scan which stops at the limit,
+-- instead of a scan and a sort of all the owner's Tasks.
+CREATE INDEX task_owner_state_rank_idx ON public.task (ownerid, state, rank_key, id);
+
+-- The ranking queries (appending after the last rank key, re-ranking and re-balancing a list) look at the
+-- owner's Tasks in all states, in rank order. The max/min rank key lookups are answered from the index alone.
+CREATE INDEX task_owner_rank_idx ON public.task (ownerid, rank_key, id);
@@ -0,0 +1,12 @@
+-- The searchable text of each Task, kept up to date by Postgres. Matches in the title (weight A) rank above
+-- matches in the description (weight B).
+ALTER TABLE public.task ADD COLUMN search tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(description, '')), 'B')
+) STORED;
+
+-- Searches are always scoped to an owner. btree_gin lets the owner id go into the same GIN index as the
+-- text, so a search only visits the owner's matching Tasks (rather than every owner's matches, filtered).
+-- btree_gin is a trusted extension (Postgres 13+), so the database owner can create it.
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+CREATE INDEX task_owner_search_idx ON public.task USING gin (ownerid, search);
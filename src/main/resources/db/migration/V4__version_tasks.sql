@@ -0,0 +1,4 @@
+-- The version of each Task, which goes up by one with every change to its title, description or state (but
+-- not its rank key). Writes are conditional on the version they read, so concurrent edits can't overwrite
+-- each other unseen (see Task#version).
+ALTER TABLE public.task ADD COLUMN version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,58 @@
+package org.alexgraham.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SingleFlightTest {
+
+    @Test
+    void concurrentLoadsOfAKey_shareTheFirstLoad() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        SingleFlight<String, String> flight = new SingleFlight<String, String>().bindTo(registry, "test");
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> loaded = new CompletableFuture<>();
+        Supplier<Uni<String>> loader = () -> {
+            loads.incrementAndGet();
+            return Uni.createFrom().completionStage(loaded);
+        };
+
+        List<UniAssertSubscriber<String>> callers = Stream.generate(() -> flight.load("key", loader)
+                        .subscribe().withSubscriber(UniAssertSubscriber.<String>create()))
+                .limit(3)
+                .toList();
+        loaded.complete("alpha");
+
+        callers.forEach(caller -> caller.assertItem("alpha"));
+        assertThat(loads.get(), is(1));
+        assertThat(registry.get("test.loads").counter().count(), is(1.0));
+        assertThat(registry.get("test.coalesced").counter().count(), is(2.0));
+        assertThat(registry.get("test.in-flight").gauge().value(), is(0.0));
+    }
+
+    @Test
+    void aFailedLoad_isNotShared_withTheNextCaller() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Uni<String>> loader = () -> loads.incrementAndGet() == 1
+                ? Uni.createFrom().failure(new IllegalStateException("the database is down"))
+                : Uni.createFrom().item("alpha");
+
+        assertThrows(IllegalStateException.class, () -> flight.load("key", loader).await().indefinitely());
+
+        assertThat(flight.load("key", loader).await().indefinitely(), is("alpha"));
+        assertThat(loads.get(), is(2));
+    }
+}
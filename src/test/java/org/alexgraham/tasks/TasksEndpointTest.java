@@ -1,17 +1,51 @@
 package org.alexgraham.tasks;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.test.common.http.TestHTTPResource;
 import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.vertx.core.runtime.context.VertxContextSafetyToggle;
 import io.restassured.http.ContentType;
 import io.restassured.http.Header;
 import io.restassured.response.Response;
+import io.restassured.response.ValidatableResponse;
+import io.smallrye.common.vertx.VertxContext;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import org.alexgraham.cache.EntityCache;
 import org.alexgraham.users.User;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
-
+import org.junit.jupiter.api.Timeout;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -23,10 +57,34 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.stringContainsInOrder;
 
 @QuarkusTest
 public class TasksEndpointTest {
 
+    @Inject
+    DataSource dataSource;
+
+    @Inject
+    EntityCache<Long, Task> taskCache;
+
+    @Inject
+    TaskEventBroadcaster broadcaster;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    TaskService service;
+
+    @Inject
+    Vertx vertx;
+
+    @TestHTTPResource("/tasks/events")
+    URI eventsUri;
+
     @Test
     void canCreateTasks() {
         User user = createUser("create task user");
@@ -80,6 +138,94 @@ public class TasksEndpointTest {
                 );
     }
 
+    @Test
+    void createTasksInABatch_appendsThemInOrder() {
+        User user = createUser("test-batch-user");
+        createTask(user, "task-1");
+
+        given()
+                .when()
+                .body("""
+                        {
+                            "titles": ["task-2", "task-3", "task-4"]
+                        }
+                        """)
+                .contentType(ContentType.JSON)
+                .header(new Header("X-User-Id", user.getId().toString()))
+                .post("/tasks/batch")
+                .then()
+                .statusCode(201)
+                .body("title", contains("task-2", "task-3", "task-4"));
+
+        assertThat(listTasksByUser(user).stream().map(Task::getTitle).toList(),
+                contains("task-1", "task-2", "task-3", "task-4"));
+    }
+
+    @Test
+    @Timeout(30)
+    void requestsInFlight_countAStreamUntilItCloses() throws Exception {
+        User user = createUser("test-metrics-user");
+        int requests = requestsInFlight();
+
+        CompletableFuture<HttpResponse<Stream<String>>> response = openEventStream(user);
+        await(this::requestsInFlight, requests + 1);
+
+        // Once an event has been sent on the stream, it still counts until it is closed
+        createTask(user, "alpha");
+        await(this::requestsInFlight, requests + 1);
+        response.get().body().close();
+        await(this::requestsInFlight, requests);
+    }
+
+    @Test
+    void metrics_areExposedInPrometheusFormat() {
+        User user = createUser("test-metrics-user");
+        createTask(user, "task-1");
+        given()
+                .when()
+                .cookie("userId", user.getId().toString())
+                .get("/my-tasks")
+                .then()
+                .statusCode(200);
+
+        given()
+                .when()
+                .get("/q/metrics")
+                .then()
+                .statusCode(200)
+                .body(
+                        containsString("http_server_requests_seconds_bucket"),
+                        containsString("tasks_service_db_seconds_count{operation=\"createTask\""),
+                        containsString("tasks_template_render_seconds_count{template=\"MyTaskResource/show"),
+                        containsString("tasks_lists_queries_coalesced_total")
+                );
+    }
+
+    @Test
+    void staticAssets_areServedPrecompressed_andCachedForever() {
+        User user = createUser("test-assets-user");
+        String page = given()
+                .when()
+                .cookie("userId", user.getId().toString())
+                .get("/my-tasks")
+                .then()
+                .statusCode(200)
+                .extract()
+                .asString();
+        Matcher script = Pattern.compile("src=\"(/assets/app\\.[0-9a-f]+\\.js)\"").matcher(page);
+        assertThat(script.find(), is(true));
+
+        given()
+                .when()
+                .header("Accept-Encoding", "gzip")
+                .get(script.group(1))
+                .then()
+                .statusCode(200)
+                .header("Content-Encoding", "gzip")
+                .header("Cache-Control", containsString("immutable"))
+                .body(containsString("htmx"));
+    }
+
     @Nested
     @DisplayName("List Tasks")
     class ListTasks {
@@ -174,15 +320,432 @@ public class TasksEndpointTest {
         void returnsEmptyIfUserDoesNotHaveAny() {
             User user = createUser("test-user-without-tasks");
 
-            Response response = given()
-                    .when()
-                    .contentType(ContentType.JSON)
-                    .header(new Header("X-User-Id", user.getId().toString()))
-                    .get("/tasks")
-                    .then()
-                    .statusCode(200)
-                    .extract().response();
-            assertThat(response.jsonPath().getList("title"), is(empty()));
+            Response response = given()
+                    .when()
+                    .contentType(ContentType.JSON)
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .get("/tasks")
+                    .then()
+                    .statusCode(200)
+                    .extract().response();
+            assertThat(response.jsonPath().getList("title"), is(empty()));
+        }
+    }
+
+    @Nested
+    @DisplayName("Paging Tasks")
+    class PagingTasks {
+
+        @Test
+        void whenMoreTasksThanLimit_returnsFirstPageWithLinkToNextPage() {
+            User user = createUser("test-paging-user");
+            createTask(user, "task-1");
+            createTask(user, "task-2");
+            createTask(user, "task-3");
+
+            Response response = given()
+                    .when()
+                    .contentType(ContentType.JSON)
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .get("/tasks?limit=2")
+                    .then()
+                    .statusCode(200)
+                    .header("Link", containsString("rel=\"next\""))
+                    .extract().response();
+
+            assertThat(response.jsonPath().getList("title"), contains("task-1", "task-2"));
+        }
+
+        @Test
+        void followingTheNextLink_returnsTheRemainingTasksInRankOrder() {
+            User user = createUser("test-paging-user");
+            Task task1 = createTask(user, "task-1");
+            Task task2 = createTask(user, "task-2");
+            Task task3 = createTask(user, "task-3");
+            Task task4 = createTask(user, "task-4");
+            Task task5 = createTask(user, "task-5");
+
+            given()
+                    .when()
+                    .body(String.format("""
+                            {
+                                "rankings": [%d, %d, %d, %d, %d]
+                            }
+                            """, task5.id, task3.id, task1.id, task4.id, task2.id))
+                    .contentType(ContentType.JSON)
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .post("/tasks/rerank")
+                    .then()
+                    .statusCode(200);
+
+            Response firstPage = given()
+                    .when()
+                    .contentType(ContentType.JSON)
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .get("/tasks?limit=3")
+                    .then()
+                    .statusCode(200)
+                    .extract().response();
+            assertThat(firstPage.jsonPath().getList("title"), contains("task-5", "task-3", "task-1"));
+
+            Response lastPage = given()
+                    .when()
+                    .contentType(ContentType.JSON)
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .get(nextLink(firstPage))
+                    .then()
+                    .statusCode(200)
+                    .header("Link", is(nullValue()))
+                    .extract().response();
+            assertThat(lastPage.jsonPath().getList("title"), contains("task-4", "task-2"));
+        }
+
+        @Test
+        void showingAllTasks_streamsEveryOpenTaskIntoThePage() {
+            User user = createUser("test-paging-user");
+            Task task1 = createTask(user, "alpha");
+            createTask(user, "bravo");
+            createTask(user, "charlie");
+            completeTask(user, task1.id);
+
+            given()
+                    .when()
+                    .cookie("userId", user.getId().toString())
+                    .get("/my-tasks/all")
+                    .then()
+                    .statusCode(200)
+                    .body(stringContainsInOrder("<html", "bravo", "charlie", "</html>"),
+                            not(containsString("alpha")),
+                            not(containsString("task-list-more")));
+        }
+
+        @Test
+        void whenThereIsMoreThanAPage_theTaskViewLinksToAllTheTasks() {
+            User user = createUser("test-paging-user");
+            createTask(user, "alpha");
+
+            given()
+                    .when()
+                    .cookie("userId", user.getId().toString())
+                    .get("/my-tasks")
+                    .then()
+                    .statusCode(200)
+                    .body(not(containsString("/my-tasks/all")));
+
+            given()
+                    .when()
+                    .body(String.format("""
+                            {
+                                "titles": [%s]
+                            }
+                            """, Stream.generate(() -> "\"bravo\"").limit(TaskService.DEFAULT_PAGE_SIZE).collect(Collectors.joining(", "))))
+                    .contentType(ContentType.JSON)
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .post("/tasks/batch")
+                    .then()
+                    .statusCode(201);
+
+            given()
+                    .when()
+                    .cookie("userId", user.getId().toString())
+                    .get("/my-tasks")
+                    .then()
+                    .statusCode(200)
+                    .body(containsString("href=\"/my-tasks/all\""));
+        }
+
+        @Test
+        void whenLimitIsLessThanOne_return400() {
+            User user = createUser("test-paging-user");
+
+            given()
+                    .when()
+                    .contentType(ContentType.JSON)
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .get("/tasks?limit=0")
+                    .then()
+                    .statusCode(400);
+        }
+    }
+
+    @Nested
+    @DisplayName("Exporting Tasks")
+    class ExportingTasks {
+
+        @Test
+        void exportingAsNdjson_streamsEveryTaskInRankOrder() {
+            User user = createUser("test-export-user");
+            Task task1 = createTask(user, "task-1");
+            createTask(user, "task-2");
+            completeTask(user, task1.id);
+
+            String body = given()
+                    .when()
+                    .accept("application/x-ndjson")
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .get("/tasks/export")
+                    .then()
+                    .statusCode(200)
+                    .extract()
+                    .asString();
+
+            List<String> lines = body.lines().toList();
+            assertThat(lines.size(), is(2));
+            assertThat(lines.get(0), containsString("\"title\":\"task-1\""));
+            assertThat(lines.get(1), containsString("\"title\":\"task-2\""));
+        }
+
+        @Test
+        void exportingAsCsv_quotesFieldsWithCommas() {
+            User user = createUser("test-export-user");
+            createTask(user, "milk, eggs");
+
+            String body = given()
+                    .when()
+                    .accept("text/csv")
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .get("/tasks/export")
+                    .then()
+                    .statusCode(200)
+                    .extract()
+                    .asString();
+
+            List<String> lines = body.lines().toList();
+            assertThat(lines.get(0), is("id,title,state,description"));
+            assertThat(lines.get(1), containsString(",\"milk, eggs\",Open,"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Searching Tasks")
+    class SearchingTasks {
+
+        @Test
+        void searching_ranksTitleMatchesFirst_andHighlightsTheMatches() {
+            User user = createUser("test-search-user");
+            User otherUser = createUser("test-search-other-user");
+            Task described = createTask(user, "call the decorator");
+            updateTask(user, described.id, """
+                    {
+                        "description": "about painting the fence"
+                    }
+                    """);
+            createTask(user, "buy <b>paint</b>");
+            createTask(user, "walk the dog");
+            createTask(otherUser, "paint the house");
+
+            given()
+                    .when()
+                    .contentType(ContentType.JSON)
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .get("/tasks/search?q=paint")
+                    .then()
+                    .statusCode(200)
+                    .body("task.title", contains("buy <b>paint</b>", "call the decorator"))
+                    .body("[0].titleHighlight", is("buy &lt;b&gt;<mark>paint</mark>&lt;/b&gt;"))
+                    .body("[1].descriptionHighlight", containsString("<mark>painting</mark>"));
+        }
+
+        @Test
+        void whenQueryIsBlank_return400() {
+            User user = createUser("test-search-user");
+
+            given()
+                    .when()
+                    .contentType(ContentType.JSON)
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .queryParam("q", " ")
+                    .get("/tasks/search")
+                    .then()
+                    .statusCode(400);
+        }
+    }
+
+    @Nested
+    @DisplayName("Task Details")
+    class TaskDetails {
+
+        @Test
+        void listsLeaveOutTheDescription_whichIsLoadedWithTheDetails() {
+            User user = createUser("test-details-user");
+            Task task = createTask(user, "task-1");
+            updateTask(user, task.id, """
+                    {
+                        "description": "a long description"
+                    }
+                    """);
+
+            assertThat(listTasksByUser(user).get(0).getDescription(), is(nullValue()));
+
+            given()
+                    .when()
+                    .accept(ContentType.HTML)
+                    .cookie("userId", user.getId().toString())
+                    .get("/tasks/" + task.id + "/details")
+                    .then()
+                    .statusCode(200)
+                    .body(containsString("a long description"));
+        }
+
+        @Test
+        void whenTaskDoesNotExist_return404() {
+            User user = createUser("test-details-user");
+
+            given()
+                    .when()
+                    .accept(ContentType.HTML)
+                    .cookie("userId", user.getId().toString())
+                    .get("/tasks/" + 123 + "/details")
+                    .then()
+                    .statusCode(404);
+        }
+    }
+
+    @Nested
+    @DisplayName("Caching Task Lists")
+    class CachingTaskLists {
+
+        @Test
+        void repeatedLists_areServedFromTheCache() {
+            User user = createUser("test-caching-user");
+            createTask(user, "task-1");
+
+            listTasksByUser(user);
+            long hits = cacheHits();
+            listTasksByUser(user);
+
+            assertThat(cacheHits(), is(hits + 1));
+        }
+
+        @Test
+        void changesAfterAListIsCached_areVisibleInTheNextList() {
+            User user = createUser("test-caching-user");
+            Task task1 = createTask(user, "task-1");
+            Task task2 = createTask(user, "task-2");
+            listTasksByUser(user);
+            listTasksByUser(user, List.of("state=complete"));
+
+            Task task3 = createTask(user, "task-3");
+            completeTask(user, task1.id);
+            updateTask(user, task2.id, """
+                    {
+                        "title": "task-2-updated"
+                    }
+                    """);
+            moveTask(user, task3.id, null, task2.id)
+                    .then()
+                    .statusCode(200);
+
+            assertThat(listTasksByUser(user).stream().map(Task::getTitle).toList(),
+                    contains("task-3", "task-2-updated"));
+            assertThat(listTasksByUser(user, List.of("state=complete")).stream().map(Task::getTitle).toList(),
+                    contains("task-1"));
+        }
+
+        @Test
+        void unchangedLists_return304NotModified_untilATaskChanges() {
+            User user = createUser("test-caching-user");
+            createTask(user, "task-1");
+            String etag = given()
+                    .when()
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .get("/tasks")
+                    .then()
+                    .statusCode(200)
+                    .extract()
+                    .header("ETag");
+
+            long hits = cacheHits();
+            given()
+                    .when()
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .header(new Header("If-None-Match", etag))
+                    .get("/tasks")
+                    .then()
+                    .statusCode(304)
+                    .header("ETag", is(etag));
+            assertThat(cacheHits(), is(hits));
+
+            createTask(user, "task-2");
+            given()
+                    .when()
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .header(new Header("If-None-Match", etag))
+                    .get("/tasks")
+                    .then()
+                    .statusCode(200)
+                    .header("ETag", not(etag))
+                    .body("title", contains("task-1", "task-2"));
+        }
+
+        @Test
+        void changesAfterAListIsRendered_areVisibleInTheNextRender() {
+            User user = createUser("test-caching-user");
+            Task task = createTask(user, "task-1");
+            renderTasksByUser(user).body(containsString("task-1"));
+
+            updateTask(user, task.id, """
+                    {
+                        "title": "task-1-updated"
+                    }
+                    """);
+
+            renderTasksByUser(user).body(containsString("task-1-updated"));
+        }
+
+        @Test
+        void changesToACachedTask_areVisibleWhenGettingIt() {
+            User user = createUser("test-caching-user");
+            Task task = createTask(user, "task-1");
+            completeTask(user, task.id);
+            updateTask(user, task.id, """
+                    {
+                        "title": "task-1-updated"
+                    }
+                    """);
+
+            Task cached = given()
+                    .when()
+                    .contentType(ContentType.JSON)
+                    .get("/tasks/" + task.id)
+                    .then()
+                    .statusCode(200)
+                    .extract()
+                    .as(Task.class);
+
+            assertThat(cached.getTitle(), is("task-1-updated"));
+            assertThat(cached.getState(), is(Task.State.Complete));
+        }
+
+        long cacheHits() {
+            return (long) registry.get("cache.gets").tag("cache", "tasks.lists").tag("result", "hit").functionCounter().count();
+        }
+    }
+
+    @Nested
+    @DisplayName("Coalescing List Queries")
+    class CoalescingListQueries {
+
+        static final int CONCURRENT_QUERIES = 8;
+
+        @Test
+        void identicalConcurrentQueries_shareASingleLoad() throws Exception {
+            User user = createUser("test-coalescing-user");
+            createTask(user, "alpha");
+            double loads = counterValue("tasks.lists.queries.loads");
+            double coalesced = counterValue("tasks.lists.queries.coalesced");
+
+            // The queries are all subscribed in the same event loop task, so they all start before the first finishes
+            List<TaskPage> pages = onVertxContext(() -> Panache.withSession(() -> Uni.join()
+                    .all(Stream.generate(() -> service.queryPageByOwner(user.getId().toString(), List.of(), null, null))
+                            .limit(CONCURRENT_QUERIES)
+                            .toList())
+                    .andFailFast()));
+
+            assertThat(pages, hasSize(CONCURRENT_QUERIES));
+            pages.forEach(page -> assertThat(page.tasks().stream().map(Task::getTitle).toList(), contains("alpha")));
+            assertThat(counterValue("tasks.lists.queries.loads"), is(loads + 1));
+            assertThat(counterValue("tasks.lists.queries.coalesced"), is(coalesced + CONCURRENT_QUERIES - 1));
         }
     }
 
@@ -287,6 +850,63 @@ public class TasksEndpointTest {
                     .statusCode(404);
         }
 
+        @Test
+        void whenTaskChangedSinceTheIfMatchVersion_return412WithTheCurrentTask() {
+            User user = createUser("test-user-updating-tasks");
+            Task task = createTask(user, "original-title");
+            String etag = given()
+                    .when()
+                    .contentType(ContentType.JSON)
+                    .get("/tasks/" + task.id)
+                    .then()
+                    .statusCode(200)
+                    .extract()
+                    .header("ETag");
+            updateTask(user, task.id, """
+                    {
+                        "title": "updated-in-another-tab"
+                    }
+                    """);
+
+            given()
+                    .when()
+                    .body("""
+                            {
+                                "title": "updated-title"
+                            }
+                            """)
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .header(new Header("If-Match", etag))
+                    .contentType(ContentType.JSON)
+                    .post("/tasks/" + task.id)
+                    .then()
+                    .statusCode(412)
+                    .header("ETag", not(etag))
+                    .body("title", is("updated-in-another-tab"));
+        }
+
+        @Test
+        void whenTaskChangedSinceTheFormWasRendered_return409WithTheCurrentTask() {
+            User user = createUser("test-user-updating-tasks");
+            Task task = createTask(user, "original-title");
+            updateTask(user, task.id, """
+                    {
+                        "title": "updated-in-another-tab"
+                    }
+                    """);
+
+            given()
+                    .when()
+                    .formParam("title", "updated-title")
+                    .formParam("version", task.getVersion())
+                    .cookie("userId", user.getId().toString())
+                    .header(new Header("HX-Request", "true"))
+                    .post("/tasks/" + task.id)
+                    .then()
+                    .statusCode(409)
+                    .body(containsString("updated-in-another-tab"));
+        }
+
     }
 
     @Nested
@@ -359,6 +979,128 @@ public class TasksEndpointTest {
                     reRankedTasks.stream().map(Task::getTitle).collect(Collectors.toList()),
                     containsInRelativeOrder("task-4", "task-1", "task-2", "task-3"));
         }
+
+        @Test
+        void aBurstOfReRankings_isSavedOnce_beforeTheListIsRead() {
+            User user = createUser("test-reranking-user");
+            Task task1 = createTask(user, "task-1");
+            Task task2 = createTask(user, "task-2");
+            Task task3 = createTask(user, "task-3");
+            long saves = dbOperationCount("saveTaskRankings");
+
+            rerankTasks(user, List.of(task2.id, task1.id, task3.id));
+            rerankTasks(user, List.of(task2.id, task3.id, task1.id));
+            rerankTasks(user, List.of(task3.id, task2.id, task1.id));
+            assertThat(dbOperationCount("saveTaskRankings"), is(saves));
+
+            List<Task> reRankedTasks = listTasksByUser(user);
+            assertThat(
+                    reRankedTasks.stream().map(Task::getTitle).collect(Collectors.toList()),
+                    contains("task-3", "task-2", "task-1"));
+            assertThat(dbOperationCount("saveTaskRankings"), is(saves + 1));
+        }
+
+        @Test
+        void rerankingOnlySomeTasks_keepsTheOtherTasksAfterThem() {
+            User user = createUser("test-reranking-user");
+            Task task1 = createTask(user, "task-1");
+            Task task2 = createTask(user, "task-2");
+            createTask(user, "task-3");
+            createTask(user, "task-4");
+
+            given()
+                    .when()
+                    .body(String.format("""
+                            {
+                                "rankings": [%d, %d]
+                            }
+                            """, task2.id, task1.id))
+                    .contentType(ContentType.JSON)
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .post("/tasks/rerank")
+                    .then()
+                    .statusCode(200);
+
+            List<Task> reRankedTasks = listTasksByUser(user);
+            assertThat(
+                    reRankedTasks.stream().map(Task::getTitle).collect(Collectors.toList()),
+                    contains("task-2", "task-1", "task-3", "task-4"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Moving Tasks")
+    class MovingTasks {
+
+        @Test
+        void movingBetweenTwoTasks_placesTheTaskBetweenThem() {
+            User user = createUser("test-moving-user");
+            Task task1 = createTask(user, "task-1");
+            Task task2 = createTask(user, "task-2");
+            Task task3 = createTask(user, "task-3");
+            createTask(user, "task-4");
+
+            moveTask(user, task3.id, task1.id, task2.id)
+                    .then()
+                    .statusCode(200);
+
+            List<Task> tasks = listTasksByUser(user);
+            assertThat(tasks.stream().map(Task::getTitle).toList(), contains("task-1", "task-3", "task-2", "task-4"));
+        }
+
+        @Test
+        void movingWithoutAPreviousTask_placesTheTaskFirst() {
+            User user = createUser("test-moving-user");
+            Task task1 = createTask(user, "task-1");
+            createTask(user, "task-2");
+            Task task3 = createTask(user, "task-3");
+
+            moveTask(user, task3.id, null, task1.id)
+                    .then()
+                    .statusCode(200);
+
+            List<Task> tasks = listTasksByUser(user);
+            assertThat(tasks.stream().map(Task::getTitle).toList(), contains("task-3", "task-1", "task-2"));
+        }
+
+        @Test
+        void movingWithoutANextTask_placesTheTaskLast() {
+            User user = createUser("test-moving-user");
+            Task task1 = createTask(user, "task-1");
+            createTask(user, "task-2");
+            Task task3 = createTask(user, "task-3");
+
+            moveTask(user, task1.id, task3.id, null)
+                    .then()
+                    .statusCode(200);
+
+            List<Task> tasks = listTasksByUser(user);
+            assertThat(tasks.stream().map(Task::getTitle).toList(), contains("task-2", "task-3", "task-1"));
+        }
+
+        @Test
+        void whenTaskBelongsToAnotherUser_return404() {
+            User user = createUser("test-moving-user");
+            User otherUser = createUser("test-moving-other-user");
+            Task task1 = createTask(user, "task-1");
+            Task task2 = createTask(user, "task-2");
+
+            moveTask(otherUser, task2.id, null, task1.id)
+                    .then()
+                    .statusCode(404);
+        }
+
+        @Test
+        void whenNeighboursAreOutOfOrder_return400() {
+            User user = createUser("test-moving-user");
+            Task task1 = createTask(user, "task-1");
+            Task task2 = createTask(user, "task-2");
+            Task task3 = createTask(user, "task-3");
+
+            moveTask(user, task1.id, task3.id, task2.id)
+                    .then()
+                    .statusCode(400);
+        }
     }
 
     @Nested
@@ -410,6 +1152,24 @@ public class TasksEndpointTest {
                     .statusCode(304);
         }
 
+        @Test
+        void whenTaskExists_alreadyComplete_withAColdCache_returns304NotModifiedResponse() {
+            User user = createUser("test-completion-user");
+            Task task = createTask(user, "task-to-complete");
+            completeTask(user, task.id);
+
+            // The Task is not in the cache, so the database decides it is already complete
+            taskCache.invalidate(task.id);
+
+            given()
+                    .when()
+                    .contentType(ContentType.JSON)
+                    .header(new Header("X-User-Id", user.getId().toString()))
+                    .post("/tasks/" + task.id + "/complete")
+                    .then()
+                    .statusCode(304);
+        }
+
         @Test
         void whenTaskDoesntExist_return404() {
             User user = createUser("test-completion-user");
@@ -497,6 +1257,147 @@ public class TasksEndpointTest {
         }
     }
 
+    @Nested
+    @DisplayName("Transitioning Many Tasks")
+    class TransitioningManyTasks {
+
+        @Test
+        void completingManyTasks_returnsTheResultForEachTask() {
+            User user = createUser("test-transition-user");
+            Task task1 = createTask(user, "task-1");
+            Task task2 = createTask(user, "task-2");
+            Task task3 = createTask(user, "task-3");
+            completeTask(user, task2.id);
+
+            transitionTasks(user, List.of(task1.id, task2.id), "complete")
+                    .then()
+                    .statusCode(200)
+                    .body("id", contains(task1.id.intValue(), task2.id.intValue()))
+                    .body("result", contains("Updated", "NotModified"))
+                    .body("[0].task.state", is("Complete"));
+
+            assertThat(listTasksByUser(user).stream().map(Task::getTitle).toList(), contains("task-3"));
+        }
+
+        @Test
+        void whenATaskBelongsToAnotherUser_return404_andChangeNothing() {
+            User user = createUser("test-transition-user");
+            User otherUser = createUser("test-transition-other-user");
+            Task task1 = createTask(user, "task-1");
+            Task otherTask = createTask(otherUser, "other-task");
+
+            transitionTasks(user, List.of(task1.id, otherTask.id), "complete")
+                    .then()
+                    .statusCode(404);
+
+            assertThat(listTasksByUser(user).stream().map(Task::getTitle).toList(), contains("task-1"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Task Events")
+    class TaskEvents {
+
+        @Test
+        void aSubscriber_receivesTheOwnersEvents_untilItCancels() {
+            UUID ownerId = UUID.randomUUID();
+            int subscribers = broadcaster.subscriberCount();
+
+            AssertSubscriber<TaskEvent> subscriber = broadcaster.subscribe(ownerId)
+                    .subscribe().withSubscriber(AssertSubscriber.create(10));
+            assertThat(broadcaster.subscriberCount(), is(subscribers + 1));
+
+            broadcaster.publish(new TaskEvent(TaskEvent.Type.Created,
+                    new Task(1L, "alpha", Task.State.Open, "a", ownerId, 0)));
+            broadcaster.publish(new TaskEvent(TaskEvent.Type.Created,
+                    new Task(2L, "bravo", Task.State.Open, "b", UUID.randomUUID(), 0)));
+
+            assertThat(subscriber.getItems().stream().map(event -> event.task().getTitle()).toList(), contains("alpha"));
+
+            subscriber.cancel();
+            assertThat(broadcaster.subscriberCount(), is(subscribers));
+        }
+
+        @Test
+        @Timeout(30)
+        void theEventStream_pushesTheUsersChanges_untilTheClientDisconnects() throws Exception {
+            User user = createUser("test-events-user");
+            int subscribers = broadcaster.subscriberCount();
+
+            CompletableFuture<HttpResponse<Stream<String>>> response = openEventStream(user);
+            await(broadcaster::subscriberCount, subscribers + 1);
+
+            createTask(user, "alpha");
+
+            try (Stream<String> lines = response.get().body()) {
+                assertThat(nextEvent(lines.iterator()), stringContainsInOrder("event:", "created", "data:", "alpha"));
+            }
+            await(broadcaster::subscriberCount, subscribers);
+        }
+
+        @Test
+        @Timeout(30)
+        void aMovedTask_isSentWithItsNewNeighbour_forTheViewToPlaceIt() throws Exception {
+            User user = createUser("test-events-user");
+            Task alpha = createTask(user, "alpha");
+            Task bravo = createTask(user, "bravo");
+            int subscribers = broadcaster.subscriberCount();
+
+            CompletableFuture<HttpResponse<Stream<String>>> response = openEventStream(user);
+            await(broadcaster::subscriberCount, subscribers + 1);
+
+            moveTask(user, alpha.id, bravo.id, null).then().statusCode(200);
+
+            try (Stream<String> lines = response.get().body()) {
+                String event = nextEvent(lines.iterator());
+                assertThat(event, stringContainsInOrder("event:", "moved", "data:",
+                        "class=\"task-move\"", "data-task-id=\"" + alpha.id + "\"", "data-previous-id=\"" + bravo.id + "\""));
+                // The Task isn't removed from the page, in case its new neighbour isn't on it
+                assertThat(event, not(containsString("hx-swap-oob")));
+            }
+            await(broadcaster::subscriberCount, subscribers);
+        }
+
+        @Test
+        void whenTheUserIsMissing_return400() {
+            given()
+                    .when()
+                    .header("Accept", "text/event-stream")
+                    .get("/tasks/events")
+                    .then()
+                    .statusCode(400);
+        }
+    }
+
+    @Nested
+    @DisplayName("Query Plans")
+    class QueryPlans {
+
+        @Test
+        void listingAPageOfTasks_readsThemInRankOrderFromTheOwnerStateIndex() throws SQLException {
+            User user = createUser("test-query-plan-user");
+            createTask(user, "task-1");
+
+            String plan = explain(String.format(
+                    "SELECT * FROM task WHERE ownerid = '%s' AND state IN ('Open') " +
+                    "AND (rank_key > '0001' OR (rank_key = '0001' AND id > 1)) ORDER BY rank_key, id LIMIT 21",
+                    user.getId()));
+
+            assertThat(plan, containsString("Index Scan using task_owner_state_rank_idx"));
+            assertThat(plan, not(containsString("Sort")));
+        }
+
+        @Test
+        void findingTheLastRankKey_onlyReadsTheOwnerRankIndex() throws SQLException {
+            User user = createUser("test-query-plan-user");
+            createTask(user, "task-1");
+
+            String plan = explain(String.format("SELECT max(rank_key) FROM task WHERE ownerid = '%s'", user.getId()));
+
+            assertThat(plan, containsString("Index Only Scan Backward using task_owner_rank_idx"));
+        }
+    }
+
     /* ********************************************************
      *   HELPER METHODS
      * ******************************************************** */
@@ -519,6 +1420,82 @@ public class TasksEndpointTest {
         return response.getBody().as(User.class);
     }
 
+    double counterValue(String name) {
+        Counter counter = registry.find(name).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    /**
+     * Runs reactive work on a (safe) Vert.x context, as Hibernate Reactive needs one, and waits for its result.
+     */
+    <T> T onVertxContext(Supplier<Uni<T>> work) throws InterruptedException, ExecutionException, TimeoutException {
+        Context context = VertxContext.getOrCreateDuplicatedContext(vertx);
+        VertxContextSafetyToggle.setContextSafe(context, true);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        context.runOnContext(ignored -> work.get().subscribe().with(result::complete, result::completeExceptionally));
+        return result.get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens a stream of the User's Task events, with a client which reads the stream as it arrives.
+     */
+    CompletableFuture<HttpResponse<Stream<String>>> openEventStream(User user) {
+        HttpRequest request = HttpRequest.newBuilder(eventsUri)
+                .header("Cookie", "userId=" + user.getId())
+                .header("Accept", "text/event-stream")
+                .build();
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build()
+                .sendAsync(request, HttpResponse.BodyHandlers.ofLines());
+    }
+
+    /**
+     * Reads the next Server-Sent Event from a stream: a block of "field:value" lines, which ends with a blank line.
+     */
+    String nextEvent(Iterator<String> lines) {
+        StringBuilder event = new StringBuilder();
+        for (String line = lines.next(); !line.isEmpty() || event.isEmpty(); line = lines.next()) {
+            event.append(line).append("\n");
+        }
+        return event.toString();
+    }
+
+    /**
+     * Waits for a value which is updated in the background (e.g. when a connection closes) to reach the expected value.
+     */
+    void await(IntSupplier actual, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (actual.getAsInt() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(actual.getAsInt(), is(expected));
+    }
+
+    int requestsInFlight() {
+        return (int) registry.get("http.server.requests.active").gauge().value();
+    }
+
+    void rerankTasks(User user, List<Long> taskIds) {
+        given()
+                .when()
+                .body(String.format("""
+                        {
+                            "rankings": [%s]
+                        }
+                        """, taskIds.stream().map(String::valueOf).collect(Collectors.joining(", "))))
+                .contentType(ContentType.JSON)
+                .header(new Header("X-User-Id", user.getId().toString()))
+                .post("/tasks/rerank")
+                .then()
+                .statusCode(200);
+    }
+
+    long dbOperationCount(String operation) {
+        Timer timer = registry.find("tasks.service.db").tag("operation", operation).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
     Task completeTask(User user, Long taskId) {
         return given()
                 .when()
@@ -577,6 +1554,49 @@ public class TasksEndpointTest {
                 .getList(".", Task.class);
     }
 
+    ValidatableResponse renderTasksByUser(User user) {
+        return given()
+                .when()
+                .accept(ContentType.HTML)
+                .cookie("userId", user.getId().toString())
+                .get("/tasks")
+                .then()
+                .statusCode(200);
+    }
+
+    Response moveTask(User user, Long taskId, Long previousId, Long nextId) {
+        return given()
+                .when()
+                .body(String.format("""
+                        {
+                            "previousId": %s,
+                            "nextId": %s
+                        }
+                        """, previousId, nextId))
+                .contentType(ContentType.JSON)
+                .header(new Header("X-User-Id", user.getId().toString()))
+                .post("/tasks/" + taskId + "/move");
+    }
+
+    Response transitionTasks(User user, List<Long> taskIds, String state) {
+        return given()
+                .when()
+                .body(String.format("""
+                        {
+                            "ids": %s,
+                            "state": "%s"
+                        }
+                        """, taskIds, state))
+                .contentType(ContentType.JSON)
+                .header(new Header("X-User-Id", user.getId().toString()))
+                .post("/tasks/transition");
+    }
+
+    String nextLink(Response response) {
+        String link = response.getHeader("Link");
+        return link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+    }
+
     Task updateTask(User user, Long taskId, String body) {
         return given()
                 .when()
@@ -591,4 +1611,24 @@ public class TasksEndpointTest {
                 .getBody().as(Task.class);
     }
 
+    /**
+     * Returns the plan Postgres would run the query with. The test tables are far too small for an index to
+     * beat a sequential scan, so those are turned off (for this transaction): the plan then shows whether an
+     * index can serve the query at all, and whether it still needs a sort.
+     */
+    String explain(String query) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.execute("SET LOCAL enable_seqscan = off");
+            statement.execute("SET LOCAL enable_bitmapscan = off");
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rows = statement.executeQuery("EXPLAIN " + query)) {
+                while (rows.next()) {
+                    plan.append(rows.getString(1)).append('\n');
+                }
+            }
+            connection.rollback();
+            return plan.toString();
+        }
+    }
 }